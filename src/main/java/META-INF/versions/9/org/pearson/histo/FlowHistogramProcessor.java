@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code java.util.concurrent.Flow} stage of a {@link HistogramProcessor}
+ * (Java 9 and later). Upstream, it requests {@code batchSize} batches at a
+ * time and the next ones only after they have been binned; downstream, it
+ * publishes the snapshots through a {@link SubmissionPublisher}. When the last
+ * downstream subscriber cancels, the upstream subscription is cancelled.
+ * <p>
+ * The stage is a nested class, so that this class has the same API as its
+ * Java 8 version.
+ */
+final class FlowHistogramProcessor {
+
+    /**
+     * Creates the Flow stage of a processor.
+     *
+     * @param processor the processor which bins the batches
+     * @return the {@code Flow.Processor<double[], double[][]>}
+     */
+    static Object of(HistogramProcessor processor) {
+        return new Stage(processor);
+    }
+
+    private FlowHistogramProcessor() {
+    }
+
+    /**
+     * The stage between the upstream of batches and the subscribers of the
+     * snapshots.
+     */
+    private static final class Stage implements Flow.Processor<double[], double[][]> {
+
+        private final HistogramProcessor processor;
+
+        private final SubmissionPublisher<double[][]> publisher = new SubmissionPublisher<>();
+
+        /**
+         * The number of downstream subscribers which haven't cancelled.
+         */
+        private final AtomicInteger subscribers = new AtomicInteger();
+
+        /**
+         * The upstream subscription, requested and cancelled under the lock of
+         * this stage so that its methods are never called concurrently.
+         */
+        private Flow.Subscription subscription;
+
+        private boolean cancelled;
+
+        /**
+         * The number of batches received since the last request.
+         */
+        private int received;
+
+        Stage(HistogramProcessor processor) {
+            this.processor = processor;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(processor.getBatchSize());
+        }
+
+        @Override
+        public void onNext(double[] values) {
+            if (processor.add(values)) {
+                publisher.submit(processor.snapshot());
+            }
+            if (++received == processor.getBatchSize()) {
+                received = 0;
+                request();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            publisher.closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            publisher.submit(processor.snapshot());
+            publisher.close();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super double[][]> subscriber) {
+            subscribers.incrementAndGet();
+            publisher.subscribe(new Downstream(subscriber));
+        }
+
+        private synchronized void request() {
+            if (!cancelled) {
+                subscription.request(processor.getBatchSize());
+            }
+        }
+
+        /**
+         * Cancels the upstream subscription once the last subscriber has
+         * cancelled.
+         */
+        private void cancelled() {
+            if (subscribers.decrementAndGet() == 0) {
+                synchronized (this) {
+                    cancelled = true;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                }
+            }
+        }
+
+        /**
+         * A downstream subscriber whose cancellation is passed upstream.
+         */
+        private final class Downstream implements Flow.Subscriber<double[][]> {
+
+            private final Flow.Subscriber<? super double[][]> subscriber;
+
+            Downstream(Flow.Subscriber<? super double[][]> subscriber) {
+                this.subscriber = subscriber;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                AtomicBoolean done = new AtomicBoolean();
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                        if (done.compareAndSet(false, true)) {
+                            cancelled();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(double[][] snapshot) {
+                subscriber.onNext(snapshot);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        }
+    }
+}
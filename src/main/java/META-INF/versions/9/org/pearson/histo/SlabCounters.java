@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Atomic 64-bit counters at 8-byte aligned offsets of a direct byte buffer,
+ * updated lock-free by a {@code VarHandle} view of the buffer (Java 9 and
+ * later).
+ */
+final class SlabCounters {
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    /**
+     * Atomically adds to a counter.
+     *
+     * @param slab   the buffer
+     * @param offset the byte offset of the counter
+     * @param n      the value to add
+     */
+    static void add(ByteBuffer slab, int offset, long n) {
+        LONG.getAndAdd(slab, offset, n);
+    }
+
+    /**
+     * Returns the current value of a counter.
+     *
+     * @param slab   the buffer
+     * @param offset the byte offset of the counter
+     * @return the value of the counter
+     */
+    static long get(ByteBuffer slab, int offset) {
+        return (long) LONG.getVolatile(slab, offset);
+    }
+
+    /**
+     * Atomically adds to a double accumulator stored as its raw long bits.
+     *
+     * @param slab   the buffer
+     * @param offset the byte offset of the accumulator
+     * @param x      the value to add
+     */
+    static void addDouble(ByteBuffer slab, int offset, double x) {
+        long bits;
+        do {
+            bits = (long) LONG.getVolatile(slab, offset);
+        } while (!LONG.compareAndSet(slab, offset, bits,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + x)));
+    }
+
+    /**
+     * Returns the current value of a double accumulator.
+     *
+     * @param slab   the buffer
+     * @param offset the byte offset of the accumulator
+     * @return the value of the accumulator
+     */
+    static double getDouble(ByteBuffer slab, int offset) {
+        return Double.longBitsToDouble((long) LONG.getVolatile(slab, offset));
+    }
+
+    private SlabCounters() {
+    }
+}
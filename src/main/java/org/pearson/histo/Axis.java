@@ -280,6 +280,29 @@ final class Axis {
         init();
     }
 
+    /**
+     * Sets custom tick mark labels at the given locations instead of the
+     * numeric ticks.
+     */
+    Axis setTicks(String[] ticks, double[] location) {
+        if (ticks.length != location.length) {
+            throw new IllegalArgumentException("Tick labels and locations don't match");
+        }
+        this.ticks = ticks;
+        this.location = location;
+        setTicks();
+        return this;
+    }
+
+    /**
+     * Sets the rotation degree (in radians) of the grid labels.
+     */
+    Axis setRotation(double rotation) {
+        this.rotation = rotation;
+        setTicks();
+        return this;
+    }
+
     /**
      * Set the visibility of the grid lines and their labels.
      */
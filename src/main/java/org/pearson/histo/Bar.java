@@ -28,7 +28,7 @@ final class Bar extends Shape {
     /**
      * The width of bar.
      */
-    final double width;
+    double width;
 
     /**
      * The left top coordinates of bar.
@@ -66,7 +66,6 @@ final class Bar extends Shape {
         }
 
         this.data = data;
-        this.width = width;
 
         int n = data.length;
         leftTop = new double[n][2];
@@ -74,7 +73,19 @@ final class Bar extends Shape {
         leftBottom = new double[n][2];
         rightBottom = new double[n][2];
 
-        for (int i = 0; i < n; i++) {
+        layout(width);
+    }
+
+    /**
+     * Recomputes the corners of the bars after their data has been updated in
+     * place.
+     * 
+     * @param width the width of bars
+     */
+    void layout(double width) {
+        this.width = width;
+
+        for (int i = 0; i < data.length; i++) {
             leftTop[i][0] = data[i][0] - width / 2.0;
             leftTop[i][1] = data[i][1];
 
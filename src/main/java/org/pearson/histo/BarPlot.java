@@ -14,6 +14,7 @@
 package org.pearson.histo;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Optional;
 
 /**
@@ -31,6 +32,17 @@ final class BarPlot extends Plot {
      */
     final Optional<Legend[]> legends;
 
+    /**
+     * The markers drawn on top of the bars, e.g. vertical lines of percentiles
+     * or points of exemplars.
+     */
+    final ArrayList<Shape> markers = new ArrayList<>();
+
+    /**
+     * The optional x axis tick labels of the bars of the first bar group.
+     */
+    private String[] tickLabels;
+
     /**
      * Constructor.
      */
@@ -70,11 +82,74 @@ final class BarPlot extends Plot {
         return new BarPlot(new Bar(coord, barWidth, barColor));
     }
 
+    /**
+     * Adds vertical marker lines spanning the height of the bars.
+     * 
+     * @param x     the x coordinates of the markers
+     * @param color the color of the markers
+     * @return this barplot
+     */
+    BarPlot addMarkers(double[] x, Color color) {
+        double top = getUpperBound()[1];
+        for (double xi : x) {
+            double[][] points = { { xi, 0.0 }, { xi, top } };
+            markers.add(new Line(points, LineStyle.DASH, ' ', color));
+        }
+        return this;
+    }
+
+    /**
+     * Adds point markers at the value of each exemplar on top of the bar of
+     * the first bar group in which it lies.
+     * 
+     * @param exemplars the exemplars, whose bins are the bars of the first
+     *                  bar group
+     * @param mark      the mark of the points, see
+     *                  {@link Graphics#drawPoint(char, double...)}
+     * @param color     the color of the markers
+     * @return this barplot
+     */
+    BarPlot addExemplars(Exemplars exemplars, char mark, Color color) {
+        int binCount = exemplars.getBinCount();
+        if (binCount != bars[0].data.length) {
+            throw new IllegalArgumentException("Number of bins doesn't match the number of bars");
+        }
+        double[] values = new double[exemplars.getSize()];
+        long[] ids = new long[values.length];
+        ArrayList<double[]> points = new ArrayList<>();
+        for (int i = 0; i < binCount; i++) {
+            int n = exemplars.get(i, values, ids);
+            for (int k = 0; k < n; k++) {
+                points.add(new double[] { values[k], bars[0].data[i][1] });
+            }
+        }
+        markers.add(new Points(points.toArray(new double[0][]), mark, color));
+        return this;
+    }
+
+    /**
+     * Labels the bars of the first bar group on the x axis instead of numeric
+     * ticks, e.g. for categorical data.
+     * 
+     * @param labels the label of each bar
+     * @return this barplot
+     */
+    BarPlot setTickLabels(String[] labels) {
+        if (labels.length != bars[0].data.length) {
+            throw new IllegalArgumentException("Number of labels doesn't match the number of bars");
+        }
+        tickLabels = labels;
+        return this;
+    }
+
     @Override
     void paint(Graphics g) {
         for (Bar bar : bars) {
             bar.paint(g);
         }
+        for (Shape marker : markers) {
+            marker.paint(g);
+        }
     }
 
     @Override
@@ -103,10 +178,10 @@ final class BarPlot extends Plot {
 
         for (int k = 1; k < bars.length; k++) {
             for (double[] x : bars[k].data) {
-                if (bound[0] > x[0] + bars[k].width / 2.0) {
+                if (bound[0] < x[0] + bars[k].width / 2.0) {
                     bound[0] = x[0] + bars[k].width / 2.0;
                 }
-                if (bound[1] > x[1]) {
+                if (bound[1] < x[1]) {
                     bound[1] = x[1];
                 }
             }
@@ -125,6 +200,13 @@ final class BarPlot extends Plot {
         Canvas canvas = new Canvas(getLowerBound(), getUpperBound());
         canvas.add(this);
         canvas.getAxis(0).setGridVisible(false);
+        if (tickLabels != null) {
+            double[] location = new double[tickLabels.length];
+            for (int i = 0; i < location.length; i++) {
+                location[i] = bars[0].data[i][0];
+            }
+            canvas.getAxis(0).setRotation(-Math.PI / 6).setTicks(tickLabels, location);
+        }
         return canvas;
     }
 }
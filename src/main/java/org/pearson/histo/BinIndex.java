@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * A histogram whose bin counts are kept in a Fenwick (binary indexed) tree, so
+ * that range sums, the cumulative distribution, its inverse and single count
+ * updates all cost {@code O(log binCount)}. Within a bin the values are assumed
+ * to be uniformly distributed for the range, distribution and quantile queries.
+ * <p>
+ * Values outside of the boundaries are not counted. Instances are not
+ * thread-safe.
+ */
+public final class BinIndex {
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    /**
+     * The 1-based Fenwick tree of the bin counts.
+     */
+    private final long[] tree;
+
+    private long total;
+
+    /**
+     * Creates an empty histogram for live updates.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins in ascending order
+     */
+    public BinIndex(double[] boundaries) {
+        this.boundaries = boundaries.clone();
+        this.index = new EytzingerIndex(this.boundaries);
+        this.tree = new long[index.binCount + 1];
+    }
+
+    /**
+     * Creates the histogram of a data sample.
+     *
+     * @param data       the double data sample
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins in ascending order
+     */
+    public BinIndex(double[] data, double[] boundaries) {
+        this(boundaries);
+        double[] counts = new double[index.binCount];
+        HistoMath.count(data, index, counts);
+        build(counts);
+    }
+
+    /**
+     * Creates an index over a 3-by-k bins array as returned by
+     * {@link HistoMath}.
+     */
+    static BinIndex of(double[][] hist) {
+        int binCount = hist[0].length;
+        double[] boundaries = new double[binCount + 1];
+        System.arraycopy(hist[0], 0, boundaries, 0, binCount);
+        boundaries[binCount] = hist[1][binCount - 1];
+
+        BinIndex bins = new BinIndex(boundaries);
+        bins.build(hist[2]);
+        return bins;
+    }
+
+    /**
+     * Builds the tree from the bin counts in linear time.
+     */
+    private void build(double[] counts) {
+        int k = counts.length;
+        for (int i = 1; i <= k; i++) {
+            long c = (long) counts[i - 1];
+            tree[i] += c;
+            total += c;
+            int j = i + (i & -i);
+            if (j <= k) {
+                tree[j] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Counts a value.
+     *
+     * @param x the value
+     */
+    public void add(double x) {
+        int j = index.binOf(x);
+        if (j >= 0) {
+            add(j, 1L);
+        }
+    }
+
+    /**
+     * Adds to the count of a bin (a negative n removes values).
+     *
+     * @param bin the bin index
+     * @param n   the number of values
+     */
+    public void add(int bin, long n) {
+        if (bin < 0 || bin >= index.binCount) {
+            throw new IllegalArgumentException("Invalid bin: " + bin);
+        }
+        for (int i = bin + 1; i < tree.length; i += i & -i) {
+            tree[i] += n;
+        }
+        total += n;
+    }
+
+    /**
+     * Returns the number of bins.
+     */
+    public int getBinCount() {
+        return index.binCount;
+    }
+
+    /**
+     * Returns the total count of all bins.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Returns the count of a bin.
+     *
+     * @param bin the bin index
+     * @return the count of the bin
+     */
+    public long getCount(int bin) {
+        return prefix(bin + 1) - prefix(bin);
+    }
+
+    /**
+     * Returns the total count of the first bins.
+     *
+     * @param binCount the number of bins from the first bin on
+     * @return the sum of the counts of bins {@code 0} to {@code binCount - 1}
+     */
+    public long prefix(int binCount) {
+        long sum = 0L;
+        for (int i = binCount; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the (interpolated) number of values between a and b.
+     *
+     * @param a the lower end of the range
+     * @param b the upper end of the range
+     * @return the number of values in {@code [a, b]}, or {@code NaN} if a or b
+     *         is {@code NaN}
+     */
+    public double countBetween(double a, double b) {
+        if (a != a || b != b) {
+            return Double.NaN;
+        }
+        return b <= a ? 0.0 : rank(b) - rank(a);
+    }
+
+    /**
+     * Returns the (interpolated) share of values less than or equal to x.
+     *
+     * @param x the value
+     * @return the cumulative distribution at x, or {@code NaN} if x is
+     *         {@code NaN} or the index is empty
+     */
+    public double cdf(double x) {
+        return total == 0L || x != x ? Double.NaN : rank(x) / total;
+    }
+
+    /**
+     * Returns the interpolated number of values less than or equal to x.
+     */
+    private double rank(double x) {
+        int k = index.binCount;
+        if (x < boundaries[0]) {
+            return 0.0;
+        }
+        if (x >= boundaries[k]) {
+            return total;
+        }
+        int j = index.binOf(x);
+        if (j < 0) {
+            // -0.0 at a lower boundary of 0.0, which the index orders below it
+            return 0.0;
+        }
+        long before = prefix(j);
+        long count = prefix(j + 1) - before;
+        return before + count * (x - boundaries[j]) / (boundaries[j + 1] - boundaries[j]);
+    }
+
+    /**
+     * Returns the (interpolated) value below which the given share of the
+     * values lies, i.e. the inverse of the cumulative distribution.
+     *
+     * @param p the share in the range [0, 1]
+     * @return the quantile of p
+     */
+    public double quantile(double p) {
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Invalid probability: " + p);
+        }
+        if (total == 0L) {
+            return Double.NaN;
+        }
+        double target = p * total;
+
+        // descend to the bin holding the target rank (at least the first value)
+        int k = index.binCount;
+        int pos = 0;
+        double rest = Math.max(target, 0.5);
+        for (int step = Integer.highestOneBit(k); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= k && tree[next] < rest) {
+                pos = next;
+                rest -= tree[next];
+            }
+        }
+        if (pos == k) {
+            return boundaries[k];
+        }
+
+        long before = prefix(pos);
+        long count = prefix(pos + 1) - before;
+        double fraction = Math.min(1.0, Math.max(0.0, (target - before) / count));
+        return boundaries[pos] + fraction * (boundaries[pos + 1] - boundaries[pos]);
+    }
+
+    /**
+     * Returns the cumulative histogram, i.e. a 3-by-k bins array whose third
+     * row is the total count of all bins up to and including each bin.
+     */
+    double[][] cumulative() {
+        int k = index.binCount;
+        double[][] freq = HistoMath.bins(boundaries);
+        for (int i = 0; i < k; i++) {
+            freq[2][i] = prefix(i + 1);
+        }
+        return freq;
+    }
+}
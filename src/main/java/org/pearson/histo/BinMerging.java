@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.PriorityQueue;
+
+/**
+ * Compresses a fine histogram into a few variable-width bins by merging
+ * adjacent bins (V-optimal histograms). A merged bin approximates the bins it
+ * covers by a constant density, i.e. each bin by the count of the merged bin
+ * in proportion to its width. The error of a compression is the sum of the
+ * squared differences between the counts of the original bins and their
+ * approximations.
+ * <p>
+ * The optimal merge is found by dynamic programming in {@code O(m k^2)} time
+ * for {@code k} original and {@code m} merged bins. Beyond a fixed amount of
+ * work, adjacent bins are merged greedily in order of the least increase of
+ * the error instead, in {@code O(k log k)} time. The counts of the merged bins
+ * are exact in both cases.
+ */
+final class BinMerging {
+
+    /**
+     * The maximum number of steps of the dynamic program.
+     */
+    private static final long MAX_OPTIMAL_WORK = 1L << 27;
+
+    /**
+     * The boundaries of the original bins.
+     */
+    private final double[] lower;
+
+    private final double[] upper;
+
+    private final int k;
+
+    /**
+     * The prefix sums of the counts, the widths, the squared counts, the
+     * counts times the widths and the squared widths.
+     */
+    private final double[] c;
+
+    private final double[] w;
+
+    private final double[] cc;
+
+    private final double[] cw;
+
+    private final double[] ww;
+
+    private BinMerging(double[][] hist) {
+        lower = hist[0];
+        upper = hist[1];
+        k = hist[0].length;
+        c = new double[k + 1];
+        w = new double[k + 1];
+        cc = new double[k + 1];
+        cw = new double[k + 1];
+        ww = new double[k + 1];
+        for (int i = 0; i < k; i++) {
+            double count = hist[2][i];
+            double width = upper[i] - lower[i];
+            c[i + 1] = c[i] + count;
+            w[i + 1] = w[i] + width;
+            cc[i + 1] = cc[i] + count * count;
+            cw[i + 1] = cw[i] + count * width;
+            ww[i + 1] = ww[i] + width * width;
+        }
+    }
+
+    /**
+     * Merges adjacent bins into a number of bins of the least error.
+     *
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param binCount the number of merged bins
+     * @return a 3-by-m bins array of the merged bins, m being the smaller of
+     *         binCount and k
+     */
+    static double[][] merge(double[][] hist, int binCount) {
+        if (binCount < 1) {
+            throw new IllegalArgumentException("Invalid number of bins: " + binCount);
+        }
+        BinMerging merging = new BinMerging(hist);
+        int m = Math.min(binCount, merging.k);
+        if ((long) merging.k * merging.k * m <= MAX_OPTIMAL_WORK) {
+            // no error is small enough to stop before m bins
+            return merging.optimal(m, Double.NEGATIVE_INFINITY);
+        }
+        // no error is too large to merge down to m bins
+        return merging.greedy(m, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Merges adjacent bins into as few bins as possible within an error bound.
+     *
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param maxError the maximum sum of the squared differences between the
+     *                 counts of the original bins and their approximations
+     * @return a 3-by-m bins array of the merged bins
+     */
+    static double[][] merge(double[][] hist, double maxError) {
+        if (!(maxError >= 0.0)) {
+            throw new IllegalArgumentException("Invalid error: " + maxError);
+        }
+        BinMerging merging = new BinMerging(hist);
+        int m = (int) Math.min(merging.k, MAX_OPTIMAL_WORK / ((long) merging.k * merging.k));
+        if (m >= 1) {
+            double[][] merged = merging.optimal(m, maxError);
+            if (merged[0].length < m || merging.error(merged) <= maxError) {
+                return merged;
+            }
+        }
+        return merging.greedy(1, maxError);
+    }
+
+    /**
+     * Returns the error of a compression.
+     *
+     * @param hist   a 3-by-k bins array as returned by {@link HistoMath}
+     * @param merged the bins merged from hist
+     * @return the sum of the squared differences between the counts of the
+     *         original bins and their approximations
+     */
+    static double error(double[][] hist, double[][] merged) {
+        return new BinMerging(hist).error(merged);
+    }
+
+    /**
+     * Returns the error of a compression of the bins.
+     */
+    private double error(double[][] merged) {
+        double error = 0.0;
+        int i = 0;
+        for (int j = 0; j < merged[0].length; j++) {
+            int start = i;
+            while (i < k && upper[i] <= merged[1][j]) {
+                i++;
+            }
+            error += error(start, i);
+        }
+        return error;
+    }
+
+    /**
+     * Returns the error of merging the bins [i, j).
+     */
+    private double error(int i, int j) {
+        double width = w[j] - w[i];
+        double density = (c[j] - c[i]) / width;
+        double error = (cc[j] - cc[i]) - 2.0 * density * (cw[j] - cw[i]) + density * density * (ww[j] - ww[i]);
+        // cancellation may leave a tiny negative error
+        return Math.max(error, 0.0);
+    }
+
+    /**
+     * Finds the optimal merge into the fewest bins whose error is within the
+     * bound, but into no more than m bins.
+     */
+    private double[][] optimal(int m, double maxError) {
+        // error[j] is the least error of merging the bins [0, j) into b bins,
+        // cut[b][j] the start of the last of these bins
+        double[] error = new double[k + 1];
+        double[] next = new double[k + 1];
+        int[][] cut = new int[m + 1][k + 1];
+        for (int j = 1; j <= k; j++) {
+            error[j] = error(0, j);
+        }
+        int b = 1;
+        while (error[k] > maxError && b < m) {
+            b++;
+            next[b - 1] = Double.POSITIVE_INFINITY;
+            for (int j = b; j <= k; j++) {
+                double best = Double.POSITIVE_INFINITY;
+                int start = b - 1;
+                for (int i = b - 1; i < j; i++) {
+                    double e = error[i] + error(i, j);
+                    if (e < best) {
+                        best = e;
+                        start = i;
+                    }
+                }
+                next[j] = best;
+                cut[b][j] = start;
+            }
+            double[] t = error;
+            error = next;
+            next = t;
+        }
+
+        int[] ends = new int[b + 1];
+        ends[b] = k;
+        for (int l = b; l > 1; l--) {
+            ends[l - 1] = cut[l][ends[l]];
+        }
+        return bins(ends);
+    }
+
+    /**
+     * Merges the pair of adjacent bins of the least increase of the error as
+     * long as there are more than m bins and the error stays within the bound.
+     */
+    private double[][] greedy(int m, double maxError) {
+        // the merged bins are linked by their first original bin
+        int[] next = new int[k];
+        int[] prev = new int[k];
+        boolean[] merged = new boolean[k];
+        PriorityQueue<Merge> queue = new PriorityQueue<>();
+        for (int i = 0; i < k; i++) {
+            next[i] = i + 1;
+            prev[i] = i - 1;
+            if (i + 1 < k) {
+                queue.add(merge(i, i + 1, i + 2));
+            }
+        }
+
+        int count = k;
+        double total = 0.0;
+        while (count > m && !queue.isEmpty()) {
+            Merge merge = queue.poll();
+            int left = merge.left;
+            int right = next[left];
+            if (merged[left] || right != merge.right || right == k || next[right] != merge.end) {
+                // outdated by an earlier merge
+                continue;
+            }
+            if (total + merge.cost > maxError) {
+                break;
+            }
+            total += merge.cost;
+            count--;
+            merged[right] = true;
+            next[left] = merge.end;
+            if (merge.end < k) {
+                prev[merge.end] = left;
+                queue.add(merge(left, merge.end, next[merge.end]));
+            }
+            if (prev[left] >= 0) {
+                queue.add(merge(prev[left], left, merge.end));
+            }
+        }
+
+        int[] ends = new int[count + 1];
+        int j = 0;
+        for (int i = 0; i < k; i = next[i]) {
+            ends[++j] = next[i];
+        }
+        return bins(ends);
+    }
+
+    /**
+     * Returns the merge of the bins [left, right) and [right, end).
+     */
+    private Merge merge(int left, int right, int end) {
+        return new Merge(left, right, end, error(left, end) - error(left, right) - error(right, end));
+    }
+
+    /**
+     * Returns the merged bins ending at the given original bins.
+     */
+    private double[][] bins(int[] ends) {
+        int m = ends.length - 1;
+        double[][] hist = new double[3][m];
+        for (int j = 0; j < m; j++) {
+            hist[0][j] = lower[ends[j]];
+            hist[1][j] = upper[ends[j + 1] - 1];
+            hist[2][j] = c[ends[j + 1]] - c[ends[j]];
+        }
+        return hist;
+    }
+
+    /**
+     * A candidate merge of two adjacent bins.
+     */
+    private static final class Merge implements Comparable<Merge> {
+        final int left;
+        final int right;
+        final int end;
+        final double cost;
+
+        Merge(int left, int right, int end, double cost) {
+            this.left = left;
+            this.right = right;
+            this.end = end;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Merge o) {
+            return Double.compare(cost, o.cost);
+        }
+    }
+}
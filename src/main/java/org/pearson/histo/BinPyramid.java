@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * A multi-resolution pyramid of equal-width histogram bins for instant
+ * re-binning. The data is binned once at the finest resolution and the
+ * cumulative counts of the finest bins are cached, which hold every coarser
+ * level at once: a coarser bin is the difference of the cumulative counts at
+ * its ends. A histogram of any coarser bin count is thereby derived in
+ * {@code O(binCount)} without touching the data again.
+ * <p>
+ * A coarser bin always consists of a whole number of finest bins, so a request
+ * for {@code binCount} bins yields {@code ceil(f / ceil(f / binCount))} bins
+ * for {@code f} finest bins, which is exactly {@code binCount} if it divides
+ * {@code f}. The range is extended beyond the maximum if the last bin isn't
+ * filled up with finest bins.
+ */
+public final class BinPyramid {
+
+    /**
+     * The number of values of the finest bins below each finest bin and the
+     * size of the sample as the last element. The counts are whole numbers,
+     * so their differences are exact.
+     */
+    private final double[] cumulative;
+
+    private final double lower;
+
+    private final double width;
+
+    private final int size;
+
+    /**
+     * Creates the pyramid of a data sample.
+     *
+     * @param data           the double data sample
+     * @param finestBinCount the number of bins of the finest level
+     */
+    public BinPyramid(double[] data, int finestBinCount) {
+        this(HistoMath.of(data, finestBinCount), data.length);
+    }
+
+    /**
+     * Creates the pyramid of a data sample.
+     *
+     * @param data           the int data sample
+     * @param finestBinCount the number of bins of the finest level
+     */
+    public BinPyramid(int[] data, int finestBinCount) {
+        this(HistoMath.of(data, HistoMath.boundaries(MathExt.min(data), MathExt.max(data),
+                HistoMath.checkBinCount(finestBinCount))), data.length);
+    }
+
+    /**
+     * Creates the pyramid of a data sample.
+     *
+     * @param data           the long data sample
+     * @param finestBinCount the number of bins of the finest level
+     */
+    public BinPyramid(long[] data, int finestBinCount) {
+        this(HistoMath.of(data, HistoMath.boundaries(MathExt.min(data), MathExt.max(data),
+                HistoMath.checkBinCount(finestBinCount))), data.length);
+    }
+
+    private BinPyramid(double[][] finest, int size) {
+        int k = finest[2].length;
+        cumulative = new double[k + 1];
+        for (int i = 0; i < k; i++) {
+            cumulative[i + 1] = cumulative[i] + finest[2][i];
+        }
+        this.lower = finest[0][0];
+        this.width = finest[1][0] - finest[0][0];
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of bins of the finest level.
+     */
+    public int getFinestBinCount() {
+        return cumulative.length - 1;
+    }
+
+    /**
+     * Returns the size of the data sample.
+     */
+    public int getCount() {
+        return size;
+    }
+
+    /**
+     * Generate the histogram of at most k bins from the cumulative counts.
+     *
+     * @param binCount the requested number of bins
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    double[][] of(int binCount) {
+        HistoMath.checkBinCount(binCount);
+        int finest = cumulative.length - 1;
+        // finest bins per bin
+        int group = (finest + binCount - 1) / binCount;
+        int count = (finest + group - 1) / group;
+
+        double[][] freq = new double[3][count];
+        for (int j = 0; j < count; j++) {
+            freq[0][j] = lower + j * group * width;
+            freq[1][j] = lower + (j + 1) * group * width;
+            int end = Math.min((j + 1) * group, finest);
+            freq[2][j] = cumulative[end] - cumulative[j * group];
+        }
+        return freq;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a value column binned by a key column, e.g. the mean
+ * latency per payload size. Each pair is added in a single pass to the
+ * count, sum, minimum, maximum and sum of squares of the bin of its key. The
+ * accumulators are kept as one primitive array per statistic rather than one
+ * object per bin.
+ * <p>
+ * Pairs whose key is outside of the boundaries or whose value is {@code NaN}
+ * are not counted. Instances are not thread-safe.
+ */
+public final class BinnedStatistics {
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    private final long[] count;
+
+    private final double[] sum;
+
+    private final double[] min;
+
+    private final double[] max;
+
+    private final double[] sumOfSquares;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the key bins in ascending order
+     */
+    public BinnedStatistics(double[] boundaries) {
+        this.boundaries = boundaries.clone();
+        this.index = new EytzingerIndex(this.boundaries);
+        int binCount = index.binCount;
+        count = new long[binCount];
+        sum = new double[binCount];
+        min = new double[binCount];
+        max = new double[binCount];
+        sumOfSquares = new double[binCount];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Creates the statistics of k equal-width key bins between the minimum and
+     * maximum key.
+     *
+     * @param keys     the key of each pair
+     * @param values   the value of each pair
+     * @param binCount the number of bins
+     */
+    public BinnedStatistics(double[] keys, double[] values, int binCount) {
+        this(HistoMath.boundaries(MathExt.min(keys), MathExt.max(keys), HistoMath.checkBinCount(binCount)));
+        addAll(keys, values);
+    }
+
+    /**
+     * Adds a pair.
+     *
+     * @param key   the key which selects the bin
+     * @param value the value
+     */
+    public void add(double key, double value) {
+        int j = index.binOf(key);
+        if (j >= 0 && value == value) {
+            count[j]++;
+            sum[j] += value;
+            sumOfSquares[j] += value * value;
+            if (value < min[j]) {
+                min[j] = value;
+            }
+            if (value > max[j]) {
+                max[j] = value;
+            }
+        }
+    }
+
+    /**
+     * Adds pairs of the same index of two columns.
+     *
+     * @param keys   the key of each pair
+     * @param values the value of each pair
+     */
+    public void addAll(double[] keys, double[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values differ in length");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            add(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the number of bins.
+     */
+    public int getBinCount() {
+        return index.binCount;
+    }
+
+    /**
+     * Returns the number of values of a bin.
+     *
+     * @param bin the bin index
+     * @return the count of the bin
+     */
+    public long getCount(int bin) {
+        return count[bin];
+    }
+
+    /**
+     * Returns a statistic of the values of a bin. All statistics but the count
+     * and the sum are {@code NaN} for an empty bin, the variance also for a bin
+     * of a single value.
+     *
+     * @param statistic the statistic
+     * @param bin       the bin index
+     * @return the statistic of the bin
+     */
+    public double get(Statistic statistic, int bin) {
+        long n = count[bin];
+        switch (statistic) {
+        case COUNT:
+            return n;
+        case SUM:
+            return sum[bin];
+        case MEAN:
+            return n == 0L ? Double.NaN : sum[bin] / n;
+        case MIN:
+            return n == 0L ? Double.NaN : min[bin];
+        case MAX:
+            return n == 0L ? Double.NaN : max[bin];
+        case VARIANCE:
+            return variance(bin);
+        case STANDARD_DEVIATION:
+            return Math.sqrt(variance(bin));
+        default:
+            throw new IllegalArgumentException("Unknown statistic: " + statistic);
+        }
+    }
+
+    /**
+     * Returns the sample variance of a bin.
+     */
+    private double variance(int bin) {
+        long n = count[bin];
+        if (n < 2L) {
+            return Double.NaN;
+        }
+        double s = sum[bin];
+        // cancellation may leave a tiny negative residual
+        return Math.max(0.0, (sumOfSquares[bin] - s * s / n) / (n - 1));
+    }
+
+    /**
+     * Returns the bar coordinates of a statistic at the center of each bin
+     * whose statistic is defined.
+     */
+    double[][] coords(Statistic statistic) {
+        int binCount = index.binCount;
+        double[][] freq = new double[binCount][];
+        int n = 0;
+        for (int i = 0; i < binCount; i++) {
+            double y = get(statistic, i);
+            if (y == y) {
+                freq[n++] = new double[] { (boundaries[i] + boundaries[i + 1]) / 2.0, y };
+            }
+        }
+        if (n == 0) {
+            throw new IllegalStateException("No bin with a defined " + statistic);
+        }
+        return Arrays.copyOf(freq, n);
+    }
+
+    /**
+     * Returns the width of the narrowest bin.
+     */
+    double width() {
+        double width = Double.MAX_VALUE;
+        for (int i = 0; i < index.binCount; i++) {
+            width = Math.min(width, boundaries[i + 1] - boundaries[i]);
+        }
+        return width;
+    }
+}
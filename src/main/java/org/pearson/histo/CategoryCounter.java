@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * Counts the occurrences of categories such as strings or enum constants for a
+ * categorical histogram. The categories are kept in an open-addressing hash
+ * table (linear probing) with primitive {@code long} count slots, so counting
+ * an already known category neither allocates nor boxes. Each distinct
+ * category is stored once, the first instance seen is retained.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class CategoryCounter {
+
+    private static final int GOLDEN = 0x9E3779B9;
+
+    private Object[] keys;
+
+    private int[] hashes;
+
+    private long[] counts;
+
+    /**
+     * The slots in order of first occurrence.
+     */
+    private int[] order;
+
+    private int size;
+
+    private int shift;
+
+    private long total;
+
+    /**
+     * Creates an empty counter.
+     */
+    public CategoryCounter() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty counter sized for an expected number of categories.
+     *
+     * @param expectedCategories the expected number of distinct categories
+     */
+    public CategoryCounter(int expectedCategories) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedCategories) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        order = new int[capacity / 2];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Counts one occurrence of a category.
+     *
+     * @param category the category
+     */
+    public void add(Object category) {
+        add(category, 1L);
+    }
+
+    /**
+     * Counts n occurrences of a category.
+     *
+     * @param category the category
+     * @param n        the number of occurrences
+     */
+    public void add(Object category, long n) {
+        if (category == null) {
+            throw new IllegalArgumentException("Category must not be null");
+        }
+        int h = category.hashCode();
+        int mask = keys.length - 1;
+        int i = (h * GOLDEN) >>> shift;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k == category || (hashes[i] == h && k.equals(category))) {
+                counts[i] += n;
+                total += n;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        if (size == order.length) {
+            rehash();
+            add(category, n);
+            return;
+        }
+        keys[i] = category;
+        hashes[i] = h;
+        counts[i] = n;
+        order[size++] = i;
+        total += n;
+    }
+
+    /**
+     * Doubles the table, keeping the order of first occurrence.
+     */
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        int[] oldOrder = order;
+        allocate(keys.length << 1);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < size; j++) {
+            int slot = oldOrder[j];
+            int i = (oldHashes[slot] * GOLDEN) >>> shift;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[slot];
+            hashes[i] = oldHashes[slot];
+            counts[i] = oldCounts[slot];
+            order[j] = i;
+        }
+    }
+
+    /**
+     * Returns the number of occurrences of a category.
+     *
+     * @param category the category
+     * @return the count, {@code 0} if the category has not been seen
+     */
+    public long getCount(Object category) {
+        int h = category.hashCode();
+        int mask = keys.length - 1;
+        int i = (h * GOLDEN) >>> shift;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k == category || (hashes[i] == h && k.equals(category))) {
+                return counts[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the number of distinct categories.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total number of occurrences of all categories.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the slots of the categories in descending order of their counts,
+     * categories with equal counts in order of first occurrence.
+     */
+    int[] slotsByCount() {
+        Integer[] slots = new Integer[size];
+        for (int j = 0; j < size; j++) {
+            slots[j] = order[j];
+        }
+        Arrays.sort(slots, (a, b) -> Long.compare(counts[b], counts[a]));
+
+        int[] sorted = new int[size];
+        for (int j = 0; j < size; j++) {
+            sorted[j] = slots[j];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the category in a slot.
+     */
+    Object key(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the count in a slot.
+     */
+    long count(int slot) {
+        return counts[slot];
+    }
+}
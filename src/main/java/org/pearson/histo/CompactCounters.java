@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * An array of non-negative counters whose width adapts to the counts. The
+ * counters are split into blocks of 1024 counters; a block is only allocated
+ * when one of its counters is first incremented, starting with unsigned 8-bit
+ * counters, and the whole block is widened to 16, 32 and 64 bits when one of
+ * its counters overflows. Small counts thereby take a byte per bin instead
+ * of the eight of a {@code long} or {@code double}, e.g. 10 MB rather than
+ * 80 MB for 10^7 bins. Untouched blocks take no memory at all, which pays off
+ * when the values are clustered; values scattered over all bins touch nearly
+ * every block, as 10^5 random values in 10^7 bins do.
+ * <p>
+ * An increment is a switch on the width of the block, which is the same for
+ * long runs of increments, and a single overflow check. Instances are not
+ * thread-safe.
+ */
+final class CompactCounters {
+
+    private static final int BLOCK_BITS = 10;
+
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private static final byte EMPTY = 0;
+
+    private static final byte BYTE = 1;
+
+    private static final byte SHORT = 2;
+
+    private static final byte INT = 3;
+
+    private static final byte LONG = 4;
+
+    private final int size;
+
+    /**
+     * The width of each block; only the array of that width is allocated.
+     */
+    private final byte[] widths;
+
+    private final byte[][] bytes;
+
+    private final short[][] shorts;
+
+    private final int[][] ints;
+
+    private final long[][] longs;
+
+    /**
+     * Constructor of zero counters.
+     *
+     * @param size the number of counters
+     */
+    CompactCounters(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        int blocks = (size + BLOCK_SIZE - 1) >>> BLOCK_BITS;
+        this.size = size;
+        this.widths = new byte[blocks];
+        this.bytes = new byte[blocks][];
+        this.shorts = new short[blocks][];
+        this.ints = new int[blocks][];
+        this.longs = new long[blocks][];
+    }
+
+    /**
+     * Returns the number of counters.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Increments a counter by one.
+     *
+     * @param i the index of the counter
+     */
+    void increment(int i) {
+        int b = i >>> BLOCK_BITS;
+        int k = i & (BLOCK_SIZE - 1);
+        switch (widths[b]) {
+        case BYTE:
+            byte[] b8 = bytes[b];
+            if (b8[k] != (byte) 0xFF) {
+                b8[k]++;
+                return;
+            }
+            break;
+        case SHORT:
+            short[] b16 = shorts[b];
+            if (b16[k] != (short) 0xFFFF) {
+                b16[k]++;
+                return;
+            }
+            break;
+        case INT:
+            int[] b32 = ints[b];
+            if (b32[k] != -1) {
+                b32[k]++;
+                return;
+            }
+            break;
+        case LONG:
+            longs[b][k]++;
+            return;
+        default:
+            break;
+        }
+        overflow(i);
+    }
+
+    /**
+     * Increments a counter of an empty block or a full counter, kept out of
+     * {@link #increment(int)} so that the latter is inlined.
+     */
+    private void overflow(int i) {
+        set(i, get(i) + 1L);
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param i the index of the counter
+     * @param n the non-negative number to add
+     */
+    void add(int i, long n) {
+        if (n < 0L) {
+            throw new IllegalArgumentException("Negative count: " + n);
+        }
+        set(i, get(i) + n);
+    }
+
+    /**
+     * Returns a counter.
+     *
+     * @param i the index of the counter
+     * @return the count
+     */
+    long get(int i) {
+        if (i >= size) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        int b = i >>> BLOCK_BITS;
+        int k = i & (BLOCK_SIZE - 1);
+        switch (widths[b]) {
+        case BYTE:
+            return bytes[b][k] & 0xFFL;
+        case SHORT:
+            return shorts[b][k] & 0xFFFFL;
+        case INT:
+            return ints[b][k] & 0xFFFFFFFFL;
+        case LONG:
+            return longs[b][k];
+        default:
+            return 0L;
+        }
+    }
+
+    /**
+     * Sets a counter, widening its block if necessary. Blocks are never
+     * narrowed again.
+     *
+     * @param i the index of the counter
+     * @param n the non-negative count
+     */
+    void set(int i, long n) {
+        if (i >= size) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        int b = i >>> BLOCK_BITS;
+        int k = i & (BLOCK_SIZE - 1);
+        byte width = n <= 0xFFL ? BYTE : n <= 0xFFFFL ? SHORT : n <= 0xFFFFFFFFL ? INT : LONG;
+        if (width > widths[b]) {
+            if (n == 0L) {
+                // an empty block is zero already
+                return;
+            }
+            widen(b, width);
+        }
+        switch (widths[b]) {
+        case BYTE:
+            bytes[b][k] = (byte) n;
+            break;
+        case SHORT:
+            shorts[b][k] = (short) n;
+            break;
+        case INT:
+            ints[b][k] = (int) n;
+            break;
+        default:
+            longs[b][k] = n;
+            break;
+        }
+    }
+
+    /**
+     * Adds the counters to the counts of a histogram.
+     *
+     * @param count the frequency count of each bin
+     */
+    void addTo(double[] count) {
+        for (int b = 0; b < widths.length; b++) {
+            int from = b << BLOCK_BITS;
+            int to = Math.min(size, from + BLOCK_SIZE);
+            switch (widths[b]) {
+            case BYTE:
+                for (int i = from; i < to; i++) {
+                    count[i] += bytes[b][i - from] & 0xFF;
+                }
+                break;
+            case SHORT:
+                for (int i = from; i < to; i++) {
+                    count[i] += shorts[b][i - from] & 0xFFFF;
+                }
+                break;
+            case INT:
+                for (int i = from; i < to; i++) {
+                    count[i] += ints[b][i - from] & 0xFFFFFFFFL;
+                }
+                break;
+            case LONG:
+                for (int i = from; i < to; i++) {
+                    count[i] += longs[b][i - from];
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the allocated blocks.
+     */
+    long bytes() {
+        long bytes = 0L;
+        for (byte width : widths) {
+            bytes += width == EMPTY ? 0L : (long) BLOCK_SIZE << (width - 1);
+        }
+        return bytes;
+    }
+
+    /**
+     * Widens a block, copying its counters.
+     */
+    private void widen(int b, byte width) {
+        long[] counts = new long[BLOCK_SIZE];
+        int from = b << BLOCK_BITS;
+        for (int k = 0; k < BLOCK_SIZE && from + k < size; k++) {
+            counts[k] = get(from + k);
+        }
+        bytes[b] = null;
+        shorts[b] = null;
+        ints[b] = null;
+        longs[b] = null;
+
+        switch (width) {
+        case BYTE:
+            byte[] b8 = new byte[BLOCK_SIZE];
+            for (int k = 0; k < BLOCK_SIZE; k++) {
+                b8[k] = (byte) counts[k];
+            }
+            bytes[b] = b8;
+            break;
+        case SHORT:
+            short[] b16 = new short[BLOCK_SIZE];
+            for (int k = 0; k < BLOCK_SIZE; k++) {
+                b16[k] = (short) counts[k];
+            }
+            shorts[b] = b16;
+            break;
+        case INT:
+            int[] b32 = new int[BLOCK_SIZE];
+            for (int k = 0; k < BLOCK_SIZE; k++) {
+                b32[k] = (int) counts[k];
+            }
+            ints[b] = b32;
+            break;
+        default:
+            longs[b] = counts;
+            break;
+        }
+        widths[b] = width;
+    }
+}
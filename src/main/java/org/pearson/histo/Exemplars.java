@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A few concrete samples of each bin of a histogram, e.g. trace ids or row
+ * numbers of the values of a tail bin. Each bin keeps a reservoir of a fixed
+ * number of (value, id) pairs which is a uniform random sample of all values
+ * offered to the bin (Vitter's algorithm R).
+ * <p>
+ * Recording neither locks nor allocates. A slot is written under a sequence
+ * stamp: a writer which finds the slot being written by another thread drops
+ * its sample instead of waiting, and a reader retries until it reads a pair
+ * which wasn't written concurrently, so it never sees the value of one sample
+ * with the id of another. Instances are thread-safe.
+ */
+public final class Exemplars {
+
+    private final double[] boundaries;
+
+    final EytzingerIndex index;
+
+    /**
+     * The number of slots of each bin.
+     */
+    private final int size;
+
+    /**
+     * The number of values offered to each bin.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The sequence stamp of each slot, odd while the slot is written and zero
+     * while it is empty.
+     */
+    private final AtomicLongArray stamps;
+
+    /**
+     * The bits of the value of each slot.
+     */
+    private final AtomicLongArray values;
+
+    private final AtomicLongArray ids;
+
+    /**
+     * Creates empty reservoirs.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins in ascending order
+     * @param size       the number of exemplars kept per bin
+     */
+    public Exemplars(double[] boundaries, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid number of exemplars: " + size);
+        }
+        this.boundaries = boundaries.clone();
+        this.index = new EytzingerIndex(this.boundaries);
+        this.size = size;
+        this.counts = new AtomicLongArray(index.binCount);
+        this.stamps = new AtomicLongArray(index.binCount * size);
+        this.values = new AtomicLongArray(index.binCount * size);
+        this.ids = new AtomicLongArray(index.binCount * size);
+    }
+
+    /**
+     * Offers a value to the reservoir of its bin. Values outside of the
+     * boundaries and {@code NaN} are ignored.
+     *
+     * @param x  the value
+     * @param id the id of the value, e.g. a trace id or row number
+     */
+    public void record(double x, long id) {
+        int j = index.binOf(x);
+        if (j >= 0) {
+            offer(j, x, id);
+        }
+    }
+
+    /**
+     * Offers a value to the reservoir of a bin.
+     */
+    void offer(int bin, double x, long id) {
+        long n = counts.incrementAndGet(bin);
+        long slot = n <= size ? n - 1 : ThreadLocalRandom.current().nextLong(n);
+        if (slot >= size) {
+            return;
+        }
+        int i = bin * size + (int) slot;
+        long stamp = stamps.get(i);
+        if ((stamp & 1L) != 0L || !stamps.compareAndSet(i, stamp, stamp + 1L)) {
+            return;
+        }
+        values.set(i, Double.doubleToRawLongBits(x));
+        ids.set(i, id);
+        stamps.set(i, stamp + 2L);
+    }
+
+    /**
+     * Returns the number of bins.
+     */
+    public int getBinCount() {
+        return index.binCount;
+    }
+
+    /**
+     * Returns the number of exemplars kept per bin.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of values offered to a bin.
+     *
+     * @param bin the bin index
+     * @return the number of values of the bin
+     */
+    public long getCount(int bin) {
+        checkBin(bin);
+        return counts.get(bin);
+    }
+
+    /**
+     * Copies the exemplars of a bin.
+     *
+     * @param bin    the bin index
+     * @param values receives the values, of size {@link #getSize()} or larger
+     * @param ids    receives the ids, of size {@link #getSize()} or larger
+     * @return the number of exemplars copied
+     */
+    public int get(int bin, double[] values, long[] ids) {
+        checkBin(bin);
+        int n = 0;
+        for (int i = bin * size; i < (bin + 1) * size; i++) {
+            for (;;) {
+                long stamp = stamps.get(i);
+                if ((stamp & 1L) != 0L) {
+                    continue;
+                }
+                long x = this.values.get(i);
+                long id = this.ids.get(i);
+                if (stamps.get(i) == stamp) {
+                    if (stamp != 0L) {
+                        values[n] = Double.longBitsToDouble(x);
+                        ids[n++] = id;
+                    }
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the boundaries of the bins.
+     */
+    double[] boundaries() {
+        return boundaries;
+    }
+
+    private void checkBin(int bin) {
+        if (bin < 0 || bin >= index.binCount) {
+            throw new IllegalArgumentException("Invalid bin: " + bin);
+        }
+    }
+}
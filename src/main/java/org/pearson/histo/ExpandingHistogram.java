@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * A streaming histogram with a fixed number of equal-width bins whose range
+ * grows with the data. The histogram starts with an initial range; whenever a
+ * value falls outside of the current range, adjacent bins are merged pairwise
+ * (doubling the bin width) and the range is extended towards the value until it
+ * is covered. Neither the minimum nor the maximum of the data need to be known
+ * in advance and the memory stays at {@code binCount} counters, which are
+ * only as wide as their counts require (see {@link CompactCounters}).
+ * <p>
+ * The bins are half-open intervals {@code [lower, upper)}. {@code NaN} and
+ * infinite values are ignored. Instances are not thread-safe.
+ * <p>
+ * The histogram can be rendered with
+ * {@link ImageService#createHistogramFromCoords(double[][], double, int, int, String, String, String)}
+ * using {@link #toCoords(boolean)} and {@link #getBinWidth()}.
+ */
+public final class ExpandingHistogram {
+
+    private final CompactCounters counts;
+
+    private double lower;
+
+    private double width;
+
+    private long count;
+
+    /**
+     * Creates a histogram with an initial range.
+     *
+     * @param binCount the (even) number of bins
+     * @param lower    the initial lower bound of the range
+     * @param upper    the initial upper bound of the range
+     */
+    public ExpandingHistogram(int binCount, double lower, double upper) {
+        HistoMath.checkBinCount(binCount);
+        if ((binCount & 1) != 0) {
+            throw new IllegalArgumentException("Number of bins must be even: " + binCount);
+        }
+        if (!(lower < upper) || Double.isInfinite(upper - lower)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + ")");
+        }
+        this.counts = new CompactCounters(binCount);
+        this.lower = lower;
+        this.width = (upper - lower) / binCount;
+    }
+
+    /**
+     * Adds a value to the histogram.
+     *
+     * @param x the value
+     */
+    public void add(double x) {
+        if (Double.isNaN(x) || Double.isInfinite(x)) {
+            return;
+        }
+        while (x < lower || x >= getUpperBound()) {
+            expand(x < lower);
+        }
+        int j = (int) ((x - lower) / width);
+        counts.increment(j < counts.size() ? j : counts.size() - 1);
+        count++;
+    }
+
+    /**
+     * Adds all values of a data sample to the histogram.
+     *
+     * @param data the data sample
+     */
+    public void addAll(double[] data) {
+        for (double x : data) {
+            add(x);
+        }
+    }
+
+    /**
+     * Adds all values of a data sample to the histogram.
+     *
+     * @param data the data sample
+     */
+    public void addAll(long[] data) {
+        for (long x : data) {
+            add(x);
+        }
+    }
+
+    /**
+     * Adds all values of a data sample to the histogram.
+     *
+     * @param data the data sample
+     */
+    public void addAll(int[] data) {
+        for (int x : data) {
+            add(x);
+        }
+    }
+
+    /**
+     * Merges adjacent bins pairwise and extends the range downwards or upwards.
+     */
+    private void expand(boolean downwards) {
+        int k = counts.size();
+        int half = k / 2;
+        if (downwards) {
+            for (int m = half - 1; m >= 0; m--) {
+                counts.set(half + m, counts.get(2 * m) + counts.get(2 * m + 1));
+            }
+            for (int i = 0; i < half; i++) {
+                counts.set(i, 0L);
+            }
+            lower -= k * width;
+        } else {
+            for (int m = 0; m < half; m++) {
+                counts.set(m, counts.get(2 * m) + counts.get(2 * m + 1));
+            }
+            for (int i = half; i < k; i++) {
+                counts.set(i, 0L);
+            }
+        }
+        width *= 2.0;
+    }
+
+    /**
+     * Returns the number of values added to the histogram.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bins.
+     */
+    public int getBinCount() {
+        return counts.size();
+    }
+
+    /**
+     * Returns the current width of the bins.
+     */
+    public double getBinWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the current lower bound of the range.
+     */
+    public double getLowerBound() {
+        return lower;
+    }
+
+    /**
+     * Returns the current (exclusive) upper bound of the range.
+     */
+    public double getUpperBound() {
+        return lower + counts.size() * width;
+    }
+
+    /**
+     * Returns the count of the i-<i>th</i> bin.
+     */
+    public long getCount(int i) {
+        return counts.get(i);
+    }
+
+    /**
+     * Returns the histogram coordinates of the bins between the first and the
+     * last non-empty bin.
+     *
+     * @param relative if {@code true} the heights are the share of the bin counts
+     *                 in the total count, otherwise the bin counts
+     * @return n x 2 array, [][0] is the x coordinate (mid point) of a bin, [][1]
+     *         is the height of a bin
+     */
+    public double[][] toCoords(boolean relative) {
+        int first = 0;
+        int last = counts.size() - 1;
+        if (count > 0L) {
+            while (counts.get(first) == 0L) {
+                first++;
+            }
+            while (counts.get(last) == 0L) {
+                last--;
+            }
+        }
+
+        double[][] coords = new double[last - first + 1][2];
+        for (int i = first; i <= last; i++) {
+            coords[i - first][0] = lower + (i + 0.5) * width;
+            long n = counts.get(i);
+            coords[i - first][1] = relative ? n / (double) count : n;
+        }
+        return coords;
+    }
+}
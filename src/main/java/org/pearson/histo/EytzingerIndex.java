@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * A copy of the histogram boundaries in Eytzinger (breadth-first) order that
+ * locates the bin of a value with a branch-free search of fixed depth.
+ * <p>
+ * The boundaries are stored as sortable {@code long} keys so that the ordering
+ * is exactly the one of {@link Double#compare(double, double)} which is used by
+ * {@link java.util.Arrays#binarySearch(double[], double)}. A value {@code x}
+ * belongs to bin {@code i} if {@code boundaries[i] <= x < boundaries[i + 1]},
+ * the last bin also includes its upper boundary and values outside of
+ * {@code [boundaries[0], boundaries[binCount]]} don't belong to any bin.
+ */
+final class EytzingerIndex {
+
+    /**
+     * The boundary keys in Eytzinger order (1-based), padded with
+     * {@code Long.MAX_VALUE} to a complete binary tree.
+     */
+    private long[] tree = new long[0];
+
+    /**
+     * Maps an Eytzinger position to the rank of its key in sorted order.
+     */
+    private int[] rank = new int[0];
+
+    /**
+     * The number of tree levels, i.e. the number of iterations of each search.
+     */
+    private int depth;
+
+    /**
+     * The key of the first boundary.
+     */
+    private long lowerKey;
+
+    /**
+     * The key of the last boundary.
+     */
+    private long upperKey;
+
+    /**
+     * The number of bins.
+     */
+    int binCount;
+
+    /**
+     * Constructor.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     */
+    EytzingerIndex(double[] boundaries) {
+        build(boundaries);
+    }
+
+    /**
+     * Constructor of an empty index which has to be built before use.
+     */
+    EytzingerIndex() {
+    }
+
+    /**
+     * (Re)builds the index for new boundaries. The arrays of the index are
+     * reused if the number of boundaries doesn't change.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     */
+    void build(double[] boundaries) {
+        binCount = HistoMath.checkBinCount(boundaries.length - 1);
+
+        int n = boundaries.length;
+        int d = 32 - Integer.numberOfLeadingZeros(n);
+        int size = (1 << d) - 1;
+
+        depth = d;
+        if (tree.length != size + 1) {
+            tree = new long[size + 1];
+            rank = new int[size + 1];
+        }
+        rank[0] = size;
+        fill(boundaries, 0, 1);
+        lowerKey = key(boundaries[0]);
+        upperKey = key(boundaries[n - 1]);
+    }
+
+    /**
+     * Returns the bin of a value or {@code -1} if the value is outside of the
+     * boundaries.
+     *
+     * @param x the value
+     * @return the bin index or {@code -1}
+     */
+    int binOf(double x) {
+        long key = key(x);
+        long[] t = tree;
+        int i = 1;
+        for (int level = depth; level > 0; level--) {
+            i = (i << 1) + (t[i] <= key ? 1 : 0);
+        }
+        // strip the trailing right turns to get the first key > x
+        i >>>= Integer.numberOfTrailingZeros(~i) + 1;
+
+        // rank of the first key > x is the count of boundaries <= x
+        int j = rank[i] - 1;
+        if (j >= binCount) {
+            // the upper boundary itself belongs to the last bin
+            j = key == upperKey ? binCount - 1 : -1;
+        }
+        return j;
+    }
+
+    /**
+     * Returns true if a value is below the first boundary.
+     *
+     * @param x the value
+     * @return true if x is an underflow
+     */
+    boolean isBelow(double x) {
+        return key(x) < lowerKey;
+    }
+
+    /**
+     * Lays out the sorted keys in breadth-first order (in-order traversal of
+     * the implicit tree), padding beyond the last boundary.
+     */
+    private int fill(double[] boundaries, int next, int k) {
+        if (k < tree.length) {
+            next = fill(boundaries, next, k << 1);
+            tree[k] = next < boundaries.length ? key(boundaries[next]) : Long.MAX_VALUE;
+            rank[k] = next++;
+            next = fill(boundaries, next, (k << 1) + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Maps a double to a long whose signed order equals the order of
+     * {@link Double#compare(double, double)} (-0.0 before 0.0, NaN last).
+     */
+    private static long key(double x) {
+        long bits = Double.doubleToLongBits(x);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+}
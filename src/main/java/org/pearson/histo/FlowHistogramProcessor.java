@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * The {@code java.util.concurrent.Flow} stage of a {@link HistogramProcessor}.
+ * Flow exists from Java 9 on, so this version only refuses; on Java 9 and
+ * later a multi-release version implementing {@code Flow.Processor} replaces
+ * it.
+ */
+final class FlowHistogramProcessor {
+
+    /**
+     * Creates the Flow stage of a processor.
+     *
+     * @param processor the processor which bins the batches
+     * @return the {@code Flow.Processor<double[], double[][]>}
+     */
+    static Object of(HistogramProcessor processor) {
+        throw new UnsupportedOperationException("java.util.concurrent.Flow requires Java 9 or later");
+    }
+
+    private FlowHistogramProcessor() {
+    }
+}
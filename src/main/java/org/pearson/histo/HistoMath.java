@@ -14,12 +14,25 @@
 package org.pearson.histo;
 
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Histogram utilities.
  */
 final class HistoMath {
 
+    /**
+     * The approximate size of a block of rows processed together by the
+     * multi-column histograms, about the size of a L2 cache.
+     */
+    private static final int BLOCK_BYTES = 1 << 18;
+
+    /**
+     * The number of values drawn from a larger data sample to estimate the
+     * percentiles of a trimmed range.
+     */
+    private static final int TRIM_SAMPLE_SIZE = 1 << 14;
+
     /**
      * Generate the histogram of k bins.
      * 
@@ -30,33 +43,12 @@ final class HistoMath {
      *         frequency count
      */
     static double[][] of(int[] data, int binCount) {
-        binCount = checkBinCount(binCount);
         int min = MathExt.min(data);
-        int max = MathExt.max(data);
-        int span = max - min + 1;
-
-        int width = 1;
-        int residual = 1;
-        while (residual > 0) {
-            width = span / binCount;
-            if (width == 0) {
-                width = 1;
-            }
-
-            residual = span - binCount * width;
-            if (residual > 0) {
-                binCount += 1;
-            }
-        }
-
-        double center = width / 2.0;
+        long span = (long) MathExt.max(data) - min + 1L;
+        binCount = binCount(span, checkBinCount(binCount));
 
         double[] boundaries = new double[binCount + 1];
-        boundaries[0] = min - center;
-        for (int i = 1; i <= binCount; i++) {
-            boundaries[i] = boundaries[i - 1] + width;
-        }
-
+        boundaries(min, span, boundaries);
         return of(data, boundaries);
     }
 
@@ -70,33 +62,12 @@ final class HistoMath {
      *         frequency count
      */
     static double[][] of(long[] data, int binCount) {
-        binCount = checkBinCount(binCount);
         long min = MathExt.min(data);
-        long max = MathExt.max(data);
-        long span = max - min + 1L;
-
-        long width = 1L;
-        long residual = 1L;
-        while (residual > 0L) {
-            width = span / binCount;
-            if (width == 0L) {
-                width = 1L;
-            }
-
-            residual = span - binCount * width;
-            if (residual > 0L) {
-                binCount += 1;
-            }
-        }
-
-        double center = width / 2.0;
+        long span = MathExt.max(data) - min + 1L;
+        binCount = binCount(span, checkBinCount(binCount));
 
         double[] boundaries = new double[binCount + 1];
-        boundaries[0] = min - center;
-        for (int i = 1; i <= binCount; i++) {
-            boundaries[i] = boundaries[i - 1] + width;
-        }
-
+        boundaries(min, span, boundaries);
         return of(data, boundaries);
     }
 
@@ -111,31 +82,75 @@ final class HistoMath {
      *         frequency count
      */
     static double[][] of(int[] data, double[] boundaries) {
-        int binCount = checkBinCount(boundaries.length - 1);
-        double[][] freq = new double[3][binCount];
-        for (int i = 0; i < binCount; i++) {
-            freq[0][i] = boundaries[i];
-            freq[1][i] = boundaries[i + 1];
-            freq[2][i] = 0;
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], null);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2]);
         }
+        return freq;
+    }
 
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     */
+    static void count(int[] data, EytzingerIndex index, double[] count) {
         for (int d : data) {
-            int j = Arrays.binarySearch(boundaries, d);
+            int j = index.binOf(d);
 
-            if (j >= binCount) {
-                j = binCount - 1;
+            if (j >= 0) {
+                count[j]++;
             }
+        }
+    }
 
-            if (j < -1 && j >= -boundaries.length) {
-                j = -j - 2;
-            }
+    /**
+     * Generate the histogram of n bins and counts the values outside of the
+     * boundaries instead of dropping them.
+     * 
+     * @param data       the data points
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     * @param edges      receives the number of values below (underflow) and
+     *                   above (overflow) the boundaries
+     * @return a 3-by-n bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] of(int[] data, double[] boundaries, double[] edges) {
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], edges);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2], edges);
+        }
+        return freq;
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count and counts
+     * the values outside of the boundaries.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries
+     */
+    static void count(int[] data, EytzingerIndex index, double[] count, double[] edges) {
+        for (int d : data) {
+            int j = index.binOf(d);
 
             if (j >= 0) {
-                freq[2][j]++;
+                count[j]++;
+            } else {
+                edges[index.isBelow(d) ? 0 : 1]++;
             }
         }
-
-        return freq;
     }
 
     /**
@@ -149,31 +164,75 @@ final class HistoMath {
      *         frequency count
      */
     static double[][] of(long[] data, double[] boundaries) {
-        int binCount = checkBinCount(boundaries.length - 1);
-        double[][] freq = new double[3][binCount];
-        for (int i = 0; i < binCount; i++) {
-            freq[0][i] = boundaries[i];
-            freq[1][i] = boundaries[i + 1];
-            freq[2][i] = 0;
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], null);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2]);
         }
+        return freq;
+    }
 
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     */
+    static void count(long[] data, EytzingerIndex index, double[] count) {
         for (long d : data) {
-            int j = Arrays.binarySearch(boundaries, d);
+            int j = index.binOf(d);
 
-            if (j >= binCount) {
-                j = binCount - 1;
+            if (j >= 0) {
+                count[j]++;
             }
+        }
+    }
 
-            if (j < -1 && j >= -boundaries.length) {
-                j = -j - 2;
-            }
+    /**
+     * Generate the histogram of n bins and counts the values outside of the
+     * boundaries instead of dropping them.
+     * 
+     * @param data       the data points
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     * @param edges      receives the number of values below (underflow) and
+     *                   above (overflow) the boundaries
+     * @return a 3-by-n bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] of(long[] data, double[] boundaries, double[] edges) {
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], edges);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2], edges);
+        }
+        return freq;
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count and counts
+     * the values outside of the boundaries.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries
+     */
+    static void count(long[] data, EytzingerIndex index, double[] count, double[] edges) {
+        for (long d : data) {
+            int j = index.binOf(d);
 
             if (j >= 0) {
-                freq[2][j]++;
+                count[j]++;
+            } else {
+                edges[index.isBelow(d) ? 0 : 1]++;
             }
         }
-
-        return freq;
     }
 
     /**
@@ -186,26 +245,410 @@ final class HistoMath {
      *         count
      */
     static double[][] of(double[] data, int binCount) {
-        double min = MathExt.min(data);
-        double max = MathExt.max(data);
+        return of(data, boundaries(MathExt.min(data), MathExt.max(data), binCount));
+    }
+
+    /**
+     * Generate the histogram of k equal-width bins over a fixed range, e.g. the
+     * range of a dashboard. Unlike {@link #of(double[], int)} the data isn't
+     * scanned for its minimum and maximum, so it is read exactly once, and the
+     * values outside of the range are counted separately instead of widening
+     * the bins. The bin of a value is computed from its offset rather than
+     * searched. {@code NaN} isn't counted at all.
+     * 
+     * @param data     the data points
+     * @param lower    the lower bound of the range
+     * @param upper    the upper bound of the range, which belongs to the last
+     *                 bin
+     * @param binCount the number of bins
+     * @param edges    receives the number of values below (underflow) and above
+     *                 (overflow) the range
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] ofRange(double[] data, double lower, double upper, int binCount, double[] edges) {
+        if (!(lower < upper)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + "]");
+        }
+        double[] boundaries = boundaries(lower, upper, checkBinCount(binCount));
+        double[][] freq = bins(boundaries);
+        double[] count = freq[2];
+        double scale = binCount / (upper - lower);
+        for (double d : data) {
+            if (d >= lower && d <= upper) {
+                int j = Math.min((int) ((d - lower) * scale), binCount - 1);
+                // the boundaries are accumulated, so the offset may be off by
+                // one bin near a boundary
+                if (d < boundaries[j]) {
+                    j--;
+                } else if (j + 1 < binCount && d >= boundaries[j + 1]) {
+                    j++;
+                }
+                count[j]++;
+            } else if (d < lower) {
+                edges[0]++;
+            } else if (d > upper) {
+                edges[1]++;
+            }
+        }
+        return freq;
+    }
+
+    /**
+     * Generate the histogram of n bins and counts the values outside of the
+     * boundaries instead of dropping them. {@code NaN} isn't counted at all.
+     * 
+     * @param data       the data points
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     * @param edges      receives the number of values below (underflow) and
+     *                   above (overflow) the boundaries
+     * @return a 3-by-n bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] of(double[] data, double[] boundaries, double[] edges) {
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], edges);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2], edges);
+        }
+        return freq;
+    }
+
+    /**
+     * Generate the histogram of at most k bins of about equal frequency. The
+     * boundaries are approximate quantiles of a {@link QuantileSketch} of the
+     * data and the counts are the differences of the approximate ranks of the
+     * boundaries, so the data is read once and never sorted as a whole. The
+     * counts add up to the number of values which aren't {@code NaN}.
+     * 
+     * @param data     the data points
+     * @param binCount the number of bins
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] ofEqualFrequency(double[] data, int binCount) {
+        checkBinCount(binCount);
+        QuantileSketch sketch = new QuantileSketch();
+        for (double d : data) {
+            sketch.add(d);
+        }
+        double[] boundaries = sketch.boundaries(binCount);
+        double[] ranks = sketch.ranks(boundaries);
+        double[][] freq = bins(boundaries);
+        int last = boundaries.length - 2;
+        for (int j = 0; j < last; j++) {
+            freq[2][j] = ranks[j + 1] - ranks[j];
+        }
+        // the last bin includes the maximum
+        freq[2][last] = sketch.getCount() - ranks[last];
+        return freq;
+    }
+
+    /**
+     * Generate the histogram of k bins over a range trimmed to the given
+     * percentiles, so that a few outliers don't squeeze the bulk of the data
+     * into a few bins. The counts of the values below and above the range are
+     * returned separately.
+     * 
+     * @param data            the data points
+     * @param binCount        the number of bins
+     * @param lowerPercentile the percentile of the lower end of the range, in
+     *                        the range [0, 100]
+     * @param upperPercentile the percentile of the upper end of the range, in
+     *                        the range [0, 100]
+     * @param edges           receives the number of values below (underflow)
+     *                        and above (overflow) the range
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static double[][] of(double[] data, int binCount, double lowerPercentile, double upperPercentile,
+            double[] edges) {
+        checkBinCount(binCount);
+        if (!(lowerPercentile < upperPercentile)) {
+            throw new IllegalArgumentException(
+                    "Invalid percentiles: " + lowerPercentile + ", " + upperPercentile);
+        }
+        double[] range = percentiles(data, lowerPercentile, upperPercentile);
+        if (!(range[0] < range[1])) {
+            // the trimmed range is a single value
+            range = MathExt.range(data);
+        }
+
+        double[] boundaries = boundaries(range[0], range[1], binCount);
+        double[][] freq = bins(boundaries);
+        count(data, new EytzingerIndex(boundaries), freq[2], edges);
+        return freq;
+    }
+
+    /**
+     * Returns two percentiles of a data sample, exact for a small sample and
+     * estimated from a random subsample of fixed size otherwise. The estimate
+     * reads only the subsample, not the whole data sample.
+     */
+    private static double[] percentiles(double[] data, double lower, double upper) {
+        int n = data.length;
+        if (n <= TRIM_SAMPLE_SIZE) {
+            return Percentiles.get(n).of(data, lower, upper);
+        }
+
+        // fixed seed for reproducible charts
+        SplittableRandom random = new SplittableRandom(n);
+        double[] sample = new double[TRIM_SAMPLE_SIZE];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = data[random.nextInt(n)];
+        }
+        return Percentiles.get(sample.length).of(sample, lower, upper);
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count and counts
+     * the values outside of the boundaries. {@code NaN} isn't counted at all.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries
+     */
+    static void count(double[] data, EytzingerIndex index, double[] count, double[] edges) {
+        for (double d : data) {
+            int j = index.binOf(d);
+
+            if (j >= 0) {
+                count[j]++;
+            } else if (d == d) {
+                edges[index.isBelow(d) ? 0 : 1]++;
+            }
+        }
+    }
+
+    /**
+     * Generate the histograms of k bins of several columns of the same rows in
+     * a single blocked pass for the minimum and maximum and a single blocked
+     * pass for the counts. Each column is binned exactly as by
+     * {@link #of(double[], int)}.
+     * 
+     * @param columns  the data points of each column, all of the same length
+     * @param binCount the number of bins
+     * @return per column a 3-by-k array of which first row is the lower bound of
+     *         bins, second row is the upper bound of bins, and the third row is
+     *         the frequency count
+     */
+    static double[][][] ofColumns(double[][] columns, int binCount) {
+        int m = columns.length;
+        int n = columns[0].length;
+        for (double[] column : columns) {
+            if (column.length != n) {
+                throw new IllegalArgumentException("Columns differ in length");
+            }
+        }
+        int block = Math.max(1, BLOCK_BYTES / (8 * m));
+
+        double[] min = new double[m];
+        double[] max = new double[m];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int from = 0; from < n; from += block) {
+            int to = Math.min(n, from + block);
+            for (int c = 0; c < m; c++) {
+                double[] x = columns[c];
+                double lo = min[c];
+                double hi = max[c];
+                for (int i = from; i < to; i++) {
+                    double d = x[i];
+                    if (d < lo) {
+                        lo = d;
+                    }
+                    if (d > hi) {
+                        hi = d;
+                    }
+                }
+                min[c] = lo;
+                max[c] = hi;
+            }
+        }
+
+        double[][][] freq = new double[m][][];
+        EytzingerIndex[] index = new EytzingerIndex[m];
+        for (int c = 0; c < m; c++) {
+            double[] boundaries = boundaries(min[c], max[c], binCount);
+            freq[c] = bins(boundaries);
+            index[c] = new EytzingerIndex(boundaries);
+        }
+        for (int from = 0; from < n; from += block) {
+            int to = Math.min(n, from + block);
+            for (int c = 0; c < m; c++) {
+                double[] x = columns[c];
+                EytzingerIndex idx = index[c];
+                double[] count = freq[c][2];
+                for (int i = from; i < to; i++) {
+                    int j = idx.binOf(x[i]);
+                    if (j >= 0) {
+                        count[j]++;
+                    }
+                }
+            }
+        }
+
+        return freq;
+    }
+
+    /**
+     * Generate the histograms of k bins of the columns of row-major data in a
+     * single blocked pass for the minimum and maximum and a single blocked pass
+     * for the counts. The rows are processed in blocks that fit into the cache
+     * and each block is scanned once per column. Each column is binned exactly
+     * as by {@link #of(double[], int)}.
+     * 
+     * @param data     the data points in row-major order
+     * @param stride   the number of columns of a row
+     * @param binCount the number of bins
+     * @return per column a 3-by-k array of which first row is the lower bound of
+     *         bins, second row is the upper bound of bins, and the third row is
+     *         the frequency count
+     */
+    static double[][][] ofRows(double[] data, int stride, int binCount) {
+        if (stride < 1 || data.length % stride != 0) {
+            throw new IllegalArgumentException("Invalid stride: " + stride);
+        }
+        int m = stride;
+        int n = data.length / stride;
+        int block = Math.max(1, BLOCK_BYTES / (8 * m));
+
+        double[] min = new double[m];
+        double[] max = new double[m];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int from = 0; from < n; from += block) {
+            int to = Math.min(n, from + block);
+            for (int c = 0; c < m; c++) {
+                double lo = min[c];
+                double hi = max[c];
+                for (int i = from * stride + c; i < to * stride; i += stride) {
+                    double d = data[i];
+                    if (d < lo) {
+                        lo = d;
+                    }
+                    if (d > hi) {
+                        hi = d;
+                    }
+                }
+                min[c] = lo;
+                max[c] = hi;
+            }
+        }
+
+        double[][][] freq = new double[m][][];
+        EytzingerIndex[] index = new EytzingerIndex[m];
+        for (int c = 0; c < m; c++) {
+            double[] boundaries = boundaries(min[c], max[c], binCount);
+            freq[c] = bins(boundaries);
+            index[c] = new EytzingerIndex(boundaries);
+        }
+        for (int from = 0; from < n; from += block) {
+            int to = Math.min(n, from + block);
+            for (int c = 0; c < m; c++) {
+                EytzingerIndex idx = index[c];
+                double[] count = freq[c][2];
+                for (int i = from * stride + c; i < to * stride; i += stride) {
+                    int j = idx.binOf(data[i]);
+                    if (j >= 0) {
+                        count[j]++;
+                    }
+                }
+            }
+        }
+
+        return freq;
+    }
+
+    /**
+     * Returns the boundaries of k equal-width bins between min and max.
+     */
+    static double[] boundaries(double min, double max, int binCount) {
+        double[] boundaries = new double[binCount + 1];
+        boundaries(min, max, boundaries);
+        return boundaries;
+    }
+
+    /**
+     * Fills in the boundaries of equal-width bins between min and max.
+     */
+    static void boundaries(double min, double max, double[] boundaries) {
+        int binCount = boundaries.length - 1;
         double span = max - min;
         if (span == 0) {
             span = binCount;
         }
         double width = span / binCount;
 
-        double[] boundaries = new double[binCount + 1];
         boundaries[0] = min;
         for (int i = 1; i < binCount; i++) {
             boundaries[i] = boundaries[i - 1] + width;
         }
         boundaries[binCount] = max;
+    }
 
-        return of(data, boundaries);
+    /**
+     * Returns the number of bins of integer width which cover a span of integers
+     * with at least the requested number of bins.
+     */
+    static int binCount(long span, int binCount) {
+        long width = 1L;
+        long residual = 1L;
+        while (residual > 0L) {
+            width = span / binCount;
+            if (width == 0L) {
+                width = 1L;
+            }
+
+            residual = span - binCount * width;
+            if (residual > 0L) {
+                binCount += 1;
+            }
+        }
+        return binCount;
     }
 
     /**
-     * Generate the histogram of n bins.
+     * Fills in the boundaries of integer-width bins which are centered on the
+     * integers of a span starting at min.
+     */
+    static void boundaries(long min, long span, double[] boundaries) {
+        int binCount = boundaries.length - 1;
+        long width = span / binCount;
+        if (width == 0L) {
+            width = 1L;
+        }
+
+        double center = width / 2.0;
+
+        boundaries[0] = min - center;
+        for (int i = 1; i <= binCount; i++) {
+            boundaries[i] = boundaries[i - 1] + width;
+        }
+    }
+
+    /**
+     * Returns an empty 3-by-k bins array for the given boundaries.
+     */
+    static double[][] bins(double[] boundaries) {
+        int binCount = checkBinCount(boundaries.length - 1);
+        double[][] freq = new double[3][binCount];
+        System.arraycopy(boundaries, 0, freq[0], 0, binCount);
+        System.arraycopy(boundaries, 1, freq[1], 0, binCount);
+        return freq;
+    }
+
+    /**
+     * Generate the histogram of n bins. With very many bins the data is
+     * binned by a {@link PartitionedBinning}.
      * 
      * @param data       the data points
      * @param boundaries an array of size {@code binCount + 1} giving the boundaries
@@ -215,31 +658,55 @@ final class HistoMath {
      *         frequency count
      */
     static double[][] of(double[] data, double[] boundaries) {
-        int binCount = checkBinCount(boundaries.length - 1);
-        double[][] freq = new double[3][binCount];
-        for (int i = 0; i < binCount; i++) {
-            freq[0][i] = boundaries[i];
-            freq[1][i] = boundaries[i + 1];
-            freq[2][i] = 0.0d;
+        double[][] freq = bins(boundaries);
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, freq[2], null);
+        } else {
+            count(data, new EytzingerIndex(boundaries), freq[2]);
         }
+        return freq;
+    }
 
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     * 
+     * @param data  the data points
+     * @param index the index of the bin boundaries
+     * @param count the frequency count of each bin
+     */
+    static void count(double[] data, EytzingerIndex index, double[] count) {
         for (double d : data) {
-            int j = Arrays.binarySearch(boundaries, d);
+            int j = index.binOf(d);
 
-            if (j >= binCount) {
-                j = binCount - 1;
+            if (j >= 0) {
+                count[j]++;
             }
+        }
+    }
 
-            if (j < -1 && j >= -boundaries.length) {
-                j = -j - 2;
-            }
+    /**
+     * Adds the bin counts of the data points to a frequency count and offers
+     * each data point to the exemplars of its bin in the same pass.
+     * 
+     * @param data      the data points
+     * @param ids       the id of each data point, or null for the row numbers
+     * @param exemplars the exemplars, whose boundaries are the bin boundaries
+     * @param count     the frequency count of each bin
+     */
+    static void count(double[] data, long[] ids, Exemplars exemplars, double[] count) {
+        if (ids != null && ids.length != data.length) {
+            throw new IllegalArgumentException("Number of ids doesn't match the number of data points");
+        }
+        EytzingerIndex index = exemplars.index;
+        for (int i = 0; i < data.length; i++) {
+            double d = data[i];
+            int j = index.binOf(d);
 
             if (j >= 0) {
-                freq[2][j]++;
+                count[j]++;
+                exemplars.offer(j, d, ids == null ? i : ids[i]);
             }
         }
-
-        return freq;
     }
 
     static int checkBinCount(int binCount) {
@@ -25,6 +25,11 @@ import java.awt.Color;
  */
 final class Histogram {
 
+    /**
+     * The color of the underflow and overflow bars.
+     */
+    static final Color EDGE_COLOR = ColorPalette.SLATE_GRAY;
+
     /**
      * Creates a histogram plot.
      * 
@@ -59,23 +64,7 @@ final class Histogram {
      */
     static BarPlot of(int[] data, int binCount, boolean relative, Color color) {
         double[][] hist = HistoMath.of(data, binCount);
-
-        // The number of bins may be extended to cover all data.
-        binCount = hist[0].length;
-        double[][] freq = new double[binCount][2];
-        for (int i = 0; i < binCount; i++) {
-            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
-            freq[i][1] = hist[2][i];
-        }
-
-        if (relative) {
-            double n = data.length;
-            for (int i = 0; i < binCount; i++) {
-                freq[i][1] /= n;
-            }
-        }
-
-        return new BarPlot(new Bar(freq, width(freq), color));
+        return of(hist, data.length, relative, color);
     }
 
     /**
@@ -88,23 +77,7 @@ final class Histogram {
      */
     static BarPlot of(long[] data, int binCount, boolean relative, Color color) {
         double[][] hist = HistoMath.of(data, binCount);
-
-        // The number of bins may be extended to cover all data.
-        binCount = hist[0].length;
-        double[][] freq = new double[binCount][2];
-        for (int i = 0; i < binCount; i++) {
-            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
-            freq[i][1] = hist[2][i];
-        }
-
-        if (relative) {
-            double n = data.length;
-            for (int i = 0; i < binCount; i++) {
-                freq[i][1] /= n;
-            }
-        }
-
-        return new BarPlot(new Bar(freq, width(freq), color));
+        return of(hist, data.length, relative, color);
     }
 
     /**
@@ -143,23 +116,8 @@ final class Histogram {
      *                   Otherwise, y-axis will be in the frequency scale.
      */
     static BarPlot of(int[] data, double[] boundaries, boolean relative, Color color) {
-        int binCount = HistoMath.checkBinCount(boundaries.length - 1);
         double[][] hist = HistoMath.of(data, boundaries);
-
-        double[][] freq = new double[binCount][2];
-        for (int i = 0; i < binCount; i++) {
-            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
-            freq[i][1] = hist[2][i];
-        }
-
-        if (relative) {
-            double n = data.length;
-            for (int i = 0; i < binCount; i++) {
-                freq[i][1] /= n;
-            }
-        }
-
-        return new BarPlot(new Bar(freq, width(freq), color));
+        return of(hist, data.length, relative, color);
     }
 
     /**
@@ -172,23 +130,8 @@ final class Histogram {
      *                   Otherwise, y-axis will be in the frequency scale.
      */
     static BarPlot of(long[] data, double[] boundaries, boolean relative, Color color) {
-        int binCount = HistoMath.checkBinCount(boundaries.length - 1);
         double[][] hist = HistoMath.of(data, boundaries);
-
-        double[][] freq = new double[binCount][2];
-        for (int i = 0; i < binCount; i++) {
-            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
-            freq[i][1] = hist[2][i];
-        }
-
-        if (relative) {
-            double n = data.length;
-            for (int i = 0; i < binCount; i++) {
-                freq[i][1] /= n;
-            }
-        }
-
-        return new BarPlot(new Bar(freq, width(freq), color));
+        return of(hist, data.length, relative, color);
     }
 
     /**
@@ -213,23 +156,7 @@ final class Histogram {
      */
     static BarPlot of(double[] data, int binCount, boolean relative, Color color) {
         double[][] hist = HistoMath.of(data, binCount);
-
-        // The number of bins may be extended to cover all data.
-        binCount = hist[0].length;
-        double[][] freq = new double[binCount][2];
-        for (int i = 0; i < binCount; i++) {
-            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
-            freq[i][1] = hist[2][i];
-        }
-
-        if (relative) {
-            double n = data.length;
-            for (int i = 0; i < binCount; i++) {
-                freq[i][1] /= n;
-            }
-        }
-
-        return new BarPlot(new Bar(freq, width(freq), color));
+        return of(hist, data.length, relative, color);
     }
 
     /**
@@ -255,9 +182,53 @@ final class Histogram {
      *                   Otherwise, y-axis will be in the frequency scale.
      */
     static BarPlot of(double[] data, double[] boundaries, boolean relative, Color color) {
-        int binCount = HistoMath.checkBinCount(boundaries.length - 1);
         double[][] hist = HistoMath.of(data, boundaries);
+        return of(hist, data.length, relative, color);
+    }
+
+    /**
+     * Creates a histogram plot of each column of a data set.
+     * 
+     * @param columns  the sample set of each column, all of the same length
+     * @param binCount the number of bins
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot[] ofColumns(double[][] columns, int binCount, boolean relative, Color color) {
+        return of(HistoMath.ofColumns(columns, binCount), columns[0].length, relative, color);
+    }
+
+    /**
+     * Creates a histogram plot of each column of a row-major data set.
+     * 
+     * @param data     the sample set in row-major order
+     * @param stride   the number of columns of a row
+     * @param binCount the number of bins
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot[] ofRows(double[] data, int stride, int binCount, boolean relative, Color color) {
+        return of(HistoMath.ofRows(data, stride, binCount), data.length / stride, relative, color);
+    }
 
+    private static BarPlot[] of(double[][][] hists, double n, boolean relative, Color color) {
+        BarPlot[] plots = new BarPlot[hists.length];
+        for (int c = 0; c < hists.length; c++) {
+            plots[c] = of(hists[c], n, relative, color);
+        }
+        return plots;
+    }
+
+    /**
+     * Creates a histogram plot from already binned data.
+     * 
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param n        the size of the sample set
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot of(double[][] hist, double n, boolean relative, Color color) {
+        int binCount = hist[0].length;
         double[][] freq = new double[binCount][2];
         for (int i = 0; i < binCount; i++) {
             freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
@@ -265,7 +236,6 @@ final class Histogram {
         }
 
         if (relative) {
-            double n = data.length;
             for (int i = 0; i < binCount; i++) {
                 freq[i][1] /= n;
             }
@@ -274,8 +244,179 @@ final class Histogram {
         return new BarPlot(new Bar(freq, width(freq), color));
     }
 
+    /**
+     * Creates a histogram plot from already binned data of a sample set whose
+     * size is the total count of the bins.
+     * 
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot of(double[][] hist, boolean relative, Color color) {
+        double n = 0.0;
+        for (double count : hist[2]) {
+            n += count;
+        }
+        return of(hist, n, relative, color);
+    }
+
+    /**
+     * Creates a histogram plot from already binned data with the values below
+     * and above the bins drawn as distinct bars next to the first and last bin.
+     * An edge bar is only drawn if it isn't empty.
+     * 
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param edges    the number of values below (underflow) and above
+     *                 (overflow) the bins
+     * @param n        the size of the sample set
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot of(double[][] hist, double[] edges, double n, boolean relative, Color color) {
+        BarPlot plot = of(hist, n, relative, color);
+        int binCount = hist[0].length;
+        double width = plot.bars[0].width;
+
+        int count = (edges[0] > 0 ? 1 : 0) + (edges[1] > 0 ? 1 : 0);
+        if (count == 0) {
+            return plot;
+        }
+        double[][] freq = new double[count][2];
+        int i = 0;
+        if (edges[0] > 0) {
+            freq[i][0] = hist[0][0] - width / 2.0;
+            freq[i++][1] = relative ? edges[0] / n : edges[0];
+        }
+        if (edges[1] > 0) {
+            freq[i][0] = hist[1][binCount - 1] + width / 2.0;
+            freq[i][1] = relative ? edges[1] / n : edges[1];
+        }
+        return new BarPlot(plot.bars[0], new Bar(freq, width, EDGE_COLOR));
+    }
+
+    /**
+     * Creates a histogram plot of bins of different widths with one bar per
+     * bin. The height of a bar is the density of its bin, i.e. the count
+     * divided by the width, so that the area of a bar is proportional to its
+     * count.
+     * 
+     * @param hist     a 3-by-k bins array as returned by {@link HistoMath}
+     * @param n        the size of the sample set
+     * @param relative if true, the y-axis will be in the probability density
+     *                 scale. Otherwise, y-axis will be in the frequency per unit
+     *                 scale.
+     */
+    static BarPlot ofVariableWidth(double[][] hist, double n, boolean relative, Color color) {
+        int binCount = hist[0].length;
+        Bar[] bars = new Bar[binCount];
+        for (int i = 0; i < binCount; i++) {
+            double width = hist[1][i] - hist[0][i];
+            double density = hist[2][i] / width;
+            if (relative) {
+                density /= n;
+            }
+            double[][] freq = { { (hist[0][i] + hist[1][i]) / 2.0, density } };
+            bars[i] = new Bar(freq, width, color);
+        }
+        return new BarPlot(bars);
+    }
+
+    /**
+     * Creates a barplot of a statistic of the values of each key bin. Bins
+     * whose statistic is undefined, e.g. the mean of an empty bin, have no bar.
+     * 
+     * @param statistics the binned statistics
+     * @param statistic  the statistic to plot
+     */
+    static BarPlot of(BinnedStatistics statistics, Statistic statistic, Color color) {
+        return new BarPlot(new Bar(statistics.coords(statistic), statistics.width(), color));
+    }
+
+    /**
+     * Creates a categorical histogram plot with one labeled bar per category in
+     * descending order of the counts. Categories beyond the {@code maxBars - 1}
+     * most frequent ones are summed up in a single "(other)" bar.
+     * 
+     * @param categories the category counts
+     * @param maxBars    the maximum number of bars
+     * @param relative   if true, the y-axis will be in the probability scale.
+     *                   Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot of(CategoryCounter categories, int maxBars, boolean relative, Color color) {
+        if (categories.size() == 0) {
+            throw new IllegalArgumentException("No categories");
+        }
+        if (maxBars < 1) {
+            throw new IllegalArgumentException("Invalid number of bars: " + maxBars);
+        }
+        int[] slots = categories.slotsByCount();
+        int binCount = Math.min(slots.length, maxBars);
+        boolean other = slots.length > binCount;
+
+        double[][] freq = new double[binCount][2];
+        String[] labels = new String[binCount];
+        for (int i = 0; i < binCount; i++) {
+            freq[i][0] = i + 1;
+            freq[i][1] = categories.count(slots[i]);
+            labels[i] = String.valueOf(categories.key(slots[i]));
+        }
+        if (other) {
+            double rest = 0.0;
+            for (int i = binCount - 1; i < slots.length; i++) {
+                rest += categories.count(slots[i]);
+            }
+            freq[binCount - 1][1] = rest;
+            labels[binCount - 1] = "(other)";
+        }
+
+        return labeled(freq, labels, categories.getTotal(), relative, 0.8, color);
+    }
+
+    /**
+     * Creates a histogram plot of timestamps with one bar per calendar unit,
+     * labeled with the wall-clock start of the unit.
+     * 
+     * @param data     the epoch timestamps
+     * @param bins     the calendar binning
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    static BarPlot of(long[] data, TimeBins bins, boolean relative, Color color) {
+        double[][] hist = bins.of(data);
+        int binCount = hist[0].length;
+        double[][] freq = new double[binCount][2];
+        for (int i = 0; i < binCount; i++) {
+            freq[i][0] = i;
+            freq[i][1] = hist[2][i];
+        }
+        // label at most about a dozen bars to keep the labels apart
+        String[] labels = bins.labels();
+        int step = (binCount + 11) / 12;
+        for (int i = 0; i < binCount; i++) {
+            if (i % step != 0) {
+                labels[i] = "";
+            }
+        }
+        return labeled(freq, labels, data.length, relative, 1.0, color);
+    }
+
+    /**
+     * Creates a barplot of bars at positions 0 to n - 1 or 1 to n labeled with
+     * text instead of numeric ticks.
+     */
+    private static BarPlot labeled(double[][] freq, String[] labels, double n, boolean relative, double barWidth,
+            Color color) {
+        if (relative) {
+            for (int i = 0; i < freq.length; i++) {
+                freq[i][1] /= n;
+            }
+        }
+
+        return new BarPlot(new Bar(freq, barWidth, color)).setTickLabels(labels);
+    }
+
     /** Calculates the width of bins. */
-    private static double width(double[][] freq) {
+    static double width(double[][] freq) {
         double width = Double.MAX_VALUE;
         for (int i = 1; i < freq.length; i++) {
             double w = Math.abs(freq[i][0] - freq[i - 1][0]);
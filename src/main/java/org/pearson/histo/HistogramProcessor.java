@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * Bins batches of values as they arrive and takes histogram snapshots every
+ * few batches, e.g. for a reactive pipeline.
+ * <p>
+ * A snapshot is an array of {@code binCount} pairs of the bin center and the
+ * bin count, which can be rendered by
+ * {@link ImageService#createHistogramFromCoords(double[][], double, int, int, String, String, String)}
+ * with {@link #getBinWidth()}. The bins are {@code binCount} equal-width bins
+ * between a lower and an upper bound, the memory is fixed by the number of
+ * bins. Values outside of the bounds are counted as underflow and overflow,
+ * {@code NaN} isn't counted.
+ * <p>
+ * On Java 9 and later {@link #asFlowProcessor()} returns a
+ * {@code java.util.concurrent.Flow.Processor<double[], double[][]>} which
+ * requests {@code batchSize} batches at a time, requests the next ones only
+ * after they have been binned, so a fast producer can't make it buffer values,
+ * and publishes the snapshots downstream. Snapshots are buffered for slow
+ * subscribers up to the buffer capacity of a
+ * {@code java.util.concurrent.SubmissionPublisher}, beyond which binning (and
+ * thereby the upstream demand) waits for the subscribers. When the last
+ * subscriber cancels, the upstream subscription is cancelled.
+ * <p>
+ * Batches are added by one thread at a time, the counts returned by the
+ * getters may be read by any thread.
+ */
+public final class HistogramProcessor {
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    private final double[] counts;
+
+    /**
+     * The underflow and overflow counts of the current batch.
+     */
+    private final double[] edges = new double[2];
+
+    /**
+     * The number of values below and above the bounds, written only by
+     * {@link #add(double[])} which is never called concurrently.
+     */
+    private volatile long underflow;
+
+    private volatile long overflow;
+
+    private volatile long count;
+
+    private final int batchSize;
+
+    private final int snapshotInterval;
+
+    private long batches;
+
+    private Object flowProcessor;
+
+    /**
+     * Creates a processor.
+     *
+     * @param lower            the lower bound of the bins
+     * @param upper            the upper bound of the bins
+     * @param binCount         the number of bins
+     * @param batchSize        the number of batches requested at a time
+     * @param snapshotInterval the number of batches between two snapshots
+     */
+    public HistogramProcessor(double lower, double upper, int binCount, int batchSize, int snapshotInterval) {
+        if (!(lower < upper)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + "]");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Invalid snapshot interval: " + snapshotInterval);
+        }
+        this.boundaries = HistoMath.boundaries(lower, upper, HistoMath.checkBinCount(binCount));
+        this.index = new EytzingerIndex(boundaries);
+        this.counts = new double[binCount];
+        this.batchSize = batchSize;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Bins a batch of values.
+     *
+     * @param values the values
+     * @return {@code true} if a snapshot is due, i.e. every
+     *         {@code snapshotInterval} batches
+     */
+    public boolean add(double[] values) {
+        edges[0] = 0.0;
+        edges[1] = 0.0;
+        HistoMath.count(values, index, counts, edges);
+        underflow += (long) edges[0];
+        overflow += (long) edges[1];
+        count += values.length;
+        return ++batches % snapshotInterval == 0L;
+    }
+
+    /**
+     * Returns a copy of the bar coordinates, to be called by the thread which
+     * adds the batches.
+     *
+     * @return an array of {@code binCount} pairs of the bin center and the bin
+     *         count
+     */
+    public double[][] snapshot() {
+        int binCount = counts.length;
+        double[][] coords = new double[binCount][2];
+        for (int i = 0; i < binCount; i++) {
+            coords[i][0] = (boundaries[i] + boundaries[i + 1]) / 2.0;
+            coords[i][1] = counts[i];
+        }
+        return coords;
+    }
+
+    /**
+     * Returns the {@code java.util.concurrent.Flow.Processor<double[], double[][]>}
+     * of this processor, which is created on the first call (Java 9 and later).
+     *
+     * @param <P> the type {@code Flow.Processor<double[], double[][]>}
+     * @return the reactive stage which bins the batches of its upstream and
+     *         publishes the snapshots downstream
+     * @throws UnsupportedOperationException before Java 9
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <P> P asFlowProcessor() {
+        if (flowProcessor == null) {
+            flowProcessor = FlowHistogramProcessor.of(this);
+        }
+        return (P) flowProcessor;
+    }
+
+    /**
+     * Returns the number of batches requested at a time.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the width of the bins.
+     */
+    public double getBinWidth() {
+        return boundaries[1] - boundaries[0];
+    }
+
+    /**
+     * Returns the number of values received so far, including the values
+     * which were not counted.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of values below the lower bound received so far.
+     */
+    public long getUnderflow() {
+        return underflow;
+    }
+
+    /**
+     * Returns the number of values above the upper bound received so far.
+     */
+    public long getOverflow() {
+        return overflow;
+    }
+}
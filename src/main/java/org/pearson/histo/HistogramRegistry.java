@@ -0,0 +1,314 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of many histogram series of the same bins, e.g. one latency
+ * histogram per endpoint, status and region. A series is identified by a name
+ * and label pairs and referenced by an int handle.
+ * <p>
+ * The counts of all series live off-heap in direct byte buffer slabs of about
+ * 1 MiB which are allocated as the registry grows, so the heap only holds the
+ * keys. Looking up an existing series and recording values are lock-free
+ * (recording uses atomic updates on Java 9 and later, see
+ * {@link SlabCounters}); only the creation of a series takes a lock.
+ * <p>
+ * As the buckets of Prometheus, the bins include their upper boundary instead
+ * of their lower one, so that the cumulative counts are the number of values
+ * less than or equal to each boundary (see {@link OpenMetricsExporter}).
+ * Values at or below the first boundary are counted as underflow, values
+ * above the last one as overflow, {@code NaN} isn't counted. Instances are
+ * thread-safe.
+ */
+public final class HistogramRegistry {
+
+    private static final int SLAB_BYTES = 1 << 20;
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    /**
+     * The series handle of each key.
+     */
+    private final ConcurrentHashMap<String, Integer> series = new ConcurrentHashMap<>();
+
+    /**
+     * The byte size of a series: a counter per bin, underflow, overflow and
+     * the sum of the values.
+     */
+    private final int slotBytes;
+
+    private final int slotsPerSlab;
+
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+    private int size;
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins of every series in
+     *                   ascending order
+     */
+    public HistogramRegistry(double[] boundaries) {
+        this.boundaries = boundaries.clone();
+        this.index = new EytzingerIndex(this.boundaries);
+        this.slotBytes = (index.binCount + 3) * Long.BYTES;
+        this.slotsPerSlab = Math.max(1, SLAB_BYTES / slotBytes);
+    }
+
+    /**
+     * Returns the handle of a series, creating the series if it doesn't exist.
+     * The order of the label pairs doesn't matter. The lookup builds the
+     * canonical key of the series, so callers which record at a high rate
+     * should look up the handle once and keep it for {@link #record(int, double)}.
+     *
+     * @param name   the name of the series
+     * @param labels label names and values in alternating order
+     * @return the series handle
+     */
+    public int series(String name, String... labels) {
+        String key = key(name, labels);
+        Integer handle = series.get(key);
+        if (handle == null) {
+            handle = series.computeIfAbsent(key, k -> allocate());
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the number of series.
+     */
+    public int size() {
+        return series.size();
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param series the series handle
+     * @param x      the value
+     */
+    public void record(int series, double x) {
+        int j = index.binOf(x);
+        if (j < 0) {
+            if (x != x) {
+                return;
+            }
+            j = index.isBelow(x) ? index.binCount : index.binCount + 1;
+        } else if (x == boundaries[j]) {
+            // a value on a boundary belongs to the bin below
+            j = j == 0 ? index.binCount : j - 1;
+        }
+        ByteBuffer slab = slab(series);
+        int offset = offset(series);
+        SlabCounters.add(slab, offset + j * Long.BYTES, 1L);
+        SlabCounters.addDouble(slab, offset + (index.binCount + 2) * Long.BYTES, x);
+    }
+
+    /**
+     * Returns the number of bins of each series.
+     */
+    public int getBinCount() {
+        return index.binCount;
+    }
+
+    /**
+     * Returns the count of a bin of a series.
+     *
+     * @param series the series handle
+     * @param bin    the bin index
+     * @return the count of the bin
+     */
+    public long getCount(int series, int bin) {
+        if (bin < 0 || bin >= index.binCount) {
+            throw new IllegalArgumentException("Invalid bin: " + bin);
+        }
+        return SlabCounters.get(slab(series), offset(series) + bin * Long.BYTES);
+    }
+
+    /**
+     * Returns the number of values of a series at or below the first boundary.
+     *
+     * @param series the series handle
+     * @return the underflow count
+     */
+    public long getUnderflow(int series) {
+        return SlabCounters.get(slab(series), offset(series) + index.binCount * Long.BYTES);
+    }
+
+    /**
+     * Returns the number of values of a series above the last boundary.
+     *
+     * @param series the series handle
+     * @return the overflow count
+     */
+    public long getOverflow(int series) {
+        return SlabCounters.get(slab(series), offset(series) + (index.binCount + 1) * Long.BYTES);
+    }
+
+    /**
+     * Returns the sum of all values of a series, including underflow and
+     * overflow.
+     *
+     * @param series the series handle
+     * @return the sum of the values
+     */
+    public double getSum(int series) {
+        return SlabCounters.getDouble(slab(series), offset(series) + (index.binCount + 2) * Long.BYTES);
+    }
+
+    /**
+     * Returns a snapshot of a series as a 3-by-k bins array as returned by
+     * {@link HistoMath}.
+     */
+    double[][] of(int series) {
+        double[][] freq = HistoMath.bins(boundaries);
+        for (int i = 0; i < index.binCount; i++) {
+            freq[2][i] = getCount(series, i);
+        }
+        return freq;
+    }
+
+    /**
+     * Returns the boundaries of the bins.
+     */
+    double[] boundaries() {
+        return boundaries;
+    }
+
+    /**
+     * Returns the keys of all series sorted by name and then by labels, so
+     * that the series of the same name are adjacent.
+     */
+    String[] keys() {
+        String[] keys = series.keySet().toArray(new String[0]);
+        Arrays.sort(keys, (a, b) -> {
+            int m = nameLength(a);
+            int n = nameLength(b);
+            for (int i = 0; i < Math.min(m, n); i++) {
+                if (a.charAt(i) != b.charAt(i)) {
+                    return a.charAt(i) - b.charAt(i);
+                }
+            }
+            return m != n ? m - n : a.compareTo(b);
+        });
+        return keys;
+    }
+
+    /**
+     * Returns the length of the name of a key.
+     */
+    static int nameLength(String key) {
+        int brace = key.indexOf('{');
+        return brace < 0 ? key.length() : brace;
+    }
+
+    /**
+     * Returns the handle of an existing series.
+     */
+    int handle(String key) {
+        return series.get(key);
+    }
+
+    private ByteBuffer slab(int series) {
+        ByteBuffer[] s = slabs;
+        int slab = series / slotsPerSlab;
+        if (series < 0 || slab >= s.length) {
+            throw new IllegalArgumentException("Invalid series: " + series);
+        }
+        return s[slab];
+    }
+
+    private int offset(int series) {
+        return (series % slotsPerSlab) * slotBytes;
+    }
+
+    /**
+     * Allocates the slot of a new series, called within the lock of the map.
+     */
+    private synchronized Integer allocate() {
+        int handle = size;
+        int slab = handle / slotsPerSlab;
+        if (slab == slabs.length) {
+            ByteBuffer[] s = Arrays.copyOf(slabs, slab + 1);
+            s[slab] = ByteBuffer.allocateDirect(slotsPerSlab * slotBytes).order(ByteOrder.nativeOrder());
+            slabs = s;
+        }
+        size = handle + 1;
+        return handle;
+    }
+
+    /**
+     * Returns the canonical key of a name and label pairs sorted by label
+     * name, e.g. {@code latency{region="eu",status="200"}}.
+     */
+    static String key(String name, String... labels) {
+        if ((labels.length & 1) != 0) {
+            throw new IllegalArgumentException("Labels are not pairs of name and value");
+        }
+        int pairs = labels.length / 2;
+        // insertion sort of the pairs by label name, there are only a few
+        int[] order = new int[pairs];
+        int length = name.length() + 2;
+        for (int i = 0; i < pairs; i++) {
+            int j = i;
+            while (j > 0 && labels[2 * order[j - 1]].compareTo(labels[2 * i]) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+            length += labels[2 * i].length() + labels[2 * i + 1].length() + 4;
+        }
+
+        StringBuilder key = new StringBuilder(length).append(name);
+        if (pairs > 0) {
+            key.append('{');
+            for (int i = 0; i < pairs; i++) {
+                if (i > 0) {
+                    key.append(',');
+                }
+                key.append(labels[2 * order[i]]).append("=\"");
+                escape(labels[2 * order[i] + 1], key);
+                key.append('"');
+            }
+            key.append('}');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Appends a label value with backslashes, double quotes and line feeds
+     * escaped.
+     */
+    private static void escape(String value, StringBuilder key) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                key.append('\\').append(c);
+            } else if (c == '\n') {
+                key.append("\\n");
+            } else {
+                key.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Owns all scratch buffers of a histogram plot (boundaries, bin array, bar
+ * coordinates and corners, boundary index) and the plot itself, so that
+ * repeated histograms of the same number of bins don't allocate. The buffers
+ * are only reallocated when the number of bins changes.
+ * <p>
+ * A workspace is not thread-safe. {@link #get(int)} returns the workspace of
+ * the current thread for up to {@link #MAX_RETAINED_BIN_COUNT} bins, so that a
+ * thread keeps at most a few MB. Larger histograms, including all those
+ * counted by a {@link PartitionedBinning}, get a new workspace whose buffers
+ * are dropped with the plot. The plot returned by a workspace stays valid
+ * until the next histogram is created with the same workspace.
+ */
+final class HistogramWorkspace {
+
+    /**
+     * The maximum number of bins of the workspace of a thread, about 4 MB of
+     * buffers.
+     */
+    static final int MAX_RETAINED_BIN_COUNT = 1 << 14;
+
+    private static final ThreadLocal<HistogramWorkspace> WORKSPACE = ThreadLocal.withInitial(HistogramWorkspace::new);
+
+    private final EytzingerIndex index = new EytzingerIndex();
+
+    private double[] boundaries = new double[0];
+
+    /**
+     * 3-by-k bins array as returned by {@link HistoMath}.
+     */
+    private double[][] hist;
+
+    /**
+     * k-by-2 bar coordinates.
+     */
+    private double[][] freq;
+
+    private BarPlot plot;
+
+    /**
+     * Returns the workspace of the current thread, or a new workspace for
+     * more than {@link #MAX_RETAINED_BIN_COUNT} bins.
+     *
+     * @param binCount the number of bins
+     */
+    static HistogramWorkspace get(int binCount) {
+        return binCount <= MAX_RETAINED_BIN_COUNT ? WORKSPACE.get() : new HistogramWorkspace();
+    }
+
+    /**
+     * Creates a histogram plot.
+     *
+     * @param data     a sample set
+     * @param binCount the number of bins
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    BarPlot of(int[] data, int binCount, boolean relative, Color color) {
+        int min = MathExt.min(data);
+        long span = (long) MathExt.max(data) - min + 1L;
+        binCount = HistoMath.binCount(span, HistoMath.checkBinCount(binCount));
+
+        HistoMath.boundaries(min, span, boundaries(binCount));
+        count(data);
+        return plot(data.length, relative, color);
+    }
+
+    /**
+     * Creates a histogram plot.
+     *
+     * @param data     a sample set
+     * @param binCount the number of bins
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    BarPlot of(long[] data, int binCount, boolean relative, Color color) {
+        long min = MathExt.min(data);
+        long span = MathExt.max(data) - min + 1L;
+        binCount = HistoMath.binCount(span, HistoMath.checkBinCount(binCount));
+
+        HistoMath.boundaries(min, span, boundaries(binCount));
+        count(data);
+        return plot(data.length, relative, color);
+    }
+
+    /**
+     * Creates a histogram plot.
+     *
+     * @param data     a sample set
+     * @param binCount the number of bins
+     * @param relative if true, the y-axis will be in the probability scale.
+     *                 Otherwise, y-axis will be in the frequency scale.
+     */
+    BarPlot of(double[] data, int binCount, boolean relative, Color color) {
+        HistoMath.checkBinCount(binCount);
+        HistoMath.boundaries(MathExt.min(data), MathExt.max(data), boundaries(binCount));
+        count(data);
+        return plot(data.length, relative, color);
+    }
+
+    /**
+     * Counts the data into the current bins, with a {@link PartitionedBinning}
+     * for very many bins.
+     */
+    private void count(int[] data) {
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, counts(), null);
+        } else {
+            index.build(boundaries);
+            HistoMath.count(data, index, counts());
+        }
+    }
+
+    /**
+     * Counts the data into the current bins, with a {@link PartitionedBinning}
+     * for very many bins.
+     */
+    private void count(long[] data) {
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, counts(), null);
+        } else {
+            index.build(boundaries);
+            HistoMath.count(data, index, counts());
+        }
+    }
+
+    /**
+     * Counts the data into the current bins, with a {@link PartitionedBinning}
+     * for very many bins.
+     */
+    private void count(double[] data) {
+        if (boundaries.length > PartitionedBinning.MIN_BIN_COUNT) {
+            new PartitionedBinning(boundaries).count(data, counts(), null);
+        } else {
+            index.build(boundaries);
+            HistoMath.count(data, index, counts());
+        }
+    }
+
+    /**
+     * Returns the boundaries buffer for k bins.
+     */
+    private double[] boundaries(int binCount) {
+        if (boundaries.length != binCount + 1) {
+            boundaries = new double[binCount + 1];
+            hist = new double[3][binCount];
+            freq = new double[binCount][2];
+            plot = null;
+        }
+        return boundaries;
+    }
+
+    /**
+     * Returns the cleared frequency counts of the current bins.
+     */
+    private double[] counts() {
+        int binCount = boundaries.length - 1;
+        System.arraycopy(boundaries, 0, hist[0], 0, binCount);
+        System.arraycopy(boundaries, 1, hist[1], 0, binCount);
+        Arrays.fill(hist[2], 0.0d);
+        return hist[2];
+    }
+
+    /**
+     * Fills the bar coordinates in place as {@link Histogram} does.
+     */
+    private BarPlot plot(double n, boolean relative, Color color) {
+        int binCount = freq.length;
+        for (int i = 0; i < binCount; i++) {
+            freq[i][0] = (hist[0][i] + hist[1][i]) / 2.0;
+            freq[i][1] = hist[2][i];
+        }
+
+        if (relative) {
+            for (int i = 0; i < binCount; i++) {
+                freq[i][1] /= n;
+            }
+        }
+
+        if (plot == null) {
+            plot = new BarPlot(new Bar(freq, Histogram.width(freq), color));
+        } else {
+            plot.bars[0].setColor(color);
+            plot.bars[0].layout(Histogram.width(freq));
+            plot.markers.clear();
+        }
+        return plot;
+    }
+}
@@ -16,6 +16,14 @@ package org.pearson.histo;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * The {@literal ImageService} is the entry point for the creation of histogram
@@ -149,7 +157,7 @@ public final class ImageService {
     public static BufferedImage createHistogramFromData(double[] histogramData, int binCount, boolean scaleRelative,
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -172,7 +180,7 @@ public final class ImageService {
     public static BufferedImage createHistogramFromData(int[] histogramData, int binCount, boolean scaleRelative,
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -195,7 +203,7 @@ public final class ImageService {
     public static BufferedImage createHistogramFromData(long[] histogramData, int binCount, boolean scaleRelative,
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -220,7 +228,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText,
             Color binColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -245,7 +253,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText,
             Color binColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -270,7 +278,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText,
             Color binColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
                 null, null);
     }
@@ -298,7 +306,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText, Color binColor,
             Font titleFont, Color titleColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 null, null, null, null);
     }
@@ -326,7 +334,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText, Color binColor,
             Font titleFont, Color titleColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 null, null, null, null);
     }
@@ -354,7 +362,7 @@ public final class ImageService {
             int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText, Color binColor,
             Font titleFont, Color titleColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 null, null, null, null);
     }
@@ -387,7 +395,7 @@ public final class ImageService {
             Font titleFont, Color titleColor, Font xAxisLabelFont, Color xAxisLabelColor, Font yAxisLabelFont,
             Color yAxisLabelColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 xAxisLabelFont, xAxisLabelColor, yAxisLabelFont, yAxisLabelColor);
     }
@@ -420,7 +428,7 @@ public final class ImageService {
             Font titleFont, Color titleColor, Font xAxisLabelFont, Color xAxisLabelColor, Font yAxisLabelFont,
             Color yAxisLabelColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 xAxisLabelFont, xAxisLabelColor, yAxisLabelFont, yAxisLabelColor);
     }
@@ -453,11 +461,867 @@ public final class ImageService {
             Font titleFont, Color titleColor, Font xAxisLabelFont, Color xAxisLabelColor, Font yAxisLabelFont,
             Color yAxisLabelColor) {
 
-        BarPlot plot = Histogram.of(histogramData, binCount, scaleRelative, binColor);
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, binColor);
         return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, titleFont, titleColor,
                 xAxisLabelFont, xAxisLabelColor, yAxisLabelFont, yAxisLabelColor);
     }
 
+    /**
+     * Creates a histogram image from a data sample of doubles given a count of bins
+     * and marks the exact percentiles of the sample as vertical lines using
+     * defaults for fonts and colors.
+     * 
+     * @param histogramData  the double data sample
+     * @param binCount       the number of bins to partition the histogram data
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param percentiles    the percentiles to mark, each in the range [0, 100]
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromData(double[] histogramData, int binCount, boolean scaleRelative,
+            double[] percentiles, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
+        plot.addMarkers(Percentiles.get(histogramData.length).of(histogramData, percentiles), ColorPalette.DARK_RED);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image from a data sample of ints given a count of bins
+     * and marks the exact percentiles of the sample as vertical lines using
+     * defaults for fonts and colors.
+     * 
+     * @param histogramData  the int data sample
+     * @param binCount       the number of bins to partition the histogram data
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param percentiles    the percentiles to mark, each in the range [0, 100]
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromData(int[] histogramData, int binCount, boolean scaleRelative,
+            double[] percentiles, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
+        plot.addMarkers(Percentiles.get(histogramData.length).of(histogramData, percentiles), ColorPalette.DARK_RED);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image from a data sample of longs given a count of bins
+     * and marks the exact percentiles of the sample as vertical lines using
+     * defaults for fonts and colors.
+     * 
+     * @param histogramData  the long data sample
+     * @param binCount       the number of bins to partition the histogram data
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param percentiles    the percentiles to mark, each in the range [0, 100]
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromData(long[] histogramData, int binCount, boolean scaleRelative,
+            double[] percentiles, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        BarPlot plot = HistogramWorkspace.get(binCount).of(histogramData, binCount, scaleRelative, ColorPalette.TURQUOISE);
+        plot.addMarkers(Percentiles.get(histogramData.length).of(histogramData, percentiles), ColorPalette.DARK_RED);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image over a range trimmed to two percentiles of the
+     * data using defaults for fonts and colors, so that a few outliers don't
+     * squeeze the bulk of the data into a few bins. The values below and above
+     * the range are drawn as distinct bars at the edges. The percentiles are
+     * estimated from a random subsample of a large data sample, so the data is
+     * binned in a single pass.
+     * 
+     * @param histogramData   the data to be represented by the histogram
+     * @param binCount        the number of bins
+     * @param lowerPercentile the percentile of the lower end of the range, in
+     *                        the range [0, 100], e.g. 0.1
+     * @param upperPercentile the percentile of the upper end of the range, in
+     *                        the range [0, 100], e.g. 99.9
+     * @param scaleRelative   if {@code true} the y axis will be scaled in
+     *                        proportion to the share of the bin data
+     * @param imgWidth        the width of the image
+     * @param imgHeight       the height of the image
+     * @param imgTitle        the title of the image
+     * @param xAxisLabelText  the text label of the x axis
+     * @param yAxisLabelText  the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromData(double[] histogramData, int binCount,
+            double lowerPercentile, double upperPercentile, boolean scaleRelative, int imgWidth, int imgHeight,
+            String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        double[] edges = new double[2];
+        double[][] hist = HistoMath.of(histogramData, binCount, lowerPercentile, upperPercentile, edges);
+        BarPlot plot = Histogram.of(hist, edges, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of equal-width bins over a fixed range using
+     * defaults for fonts and colors, e.g. 0 to 2000 ms for a latency
+     * dashboard. The data is read exactly once, without a scan for its minimum
+     * and maximum. The values below and above the range are drawn as distinct
+     * bars at the edges.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param lower          the lower bound of the range
+     * @param upper          the upper bound of the range
+     * @param binCount       the number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createFixedRangeHistogram(double[] histogramData, double lower, double upper,
+            int binCount, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[] edges = new double[2];
+        double[][] hist = HistoMath.ofRange(histogramData, lower, upper, binCount, edges);
+        BarPlot plot = Histogram.of(hist, edges, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of equal-width bins over a fixed range using
+     * defaults for fonts and colors, e.g. 0 to 2000 ms for a latency
+     * dashboard. The data is read exactly once, without a scan for its minimum
+     * and maximum. The values below and above the range are drawn as distinct
+     * bars at the edges.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param lower          the lower bound of the range
+     * @param upper          the upper bound of the range
+     * @param binCount       the number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createFixedRangeHistogram(int[] histogramData, double lower, double upper,
+            int binCount, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        if (!(lower < upper)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + "]");
+        }
+        double[] edges = new double[2];
+        double[][] hist = HistoMath.of(histogramData, HistoMath.boundaries(lower, upper, binCount), edges);
+        BarPlot plot = Histogram.of(hist, edges, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of equal-width bins over a fixed range using
+     * defaults for fonts and colors, e.g. 0 to 2000 ms for a latency
+     * dashboard. The data is read exactly once, without a scan for its minimum
+     * and maximum. The values below and above the range are drawn as distinct
+     * bars at the edges.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param lower          the lower bound of the range
+     * @param upper          the upper bound of the range
+     * @param binCount       the number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createFixedRangeHistogram(long[] histogramData, double lower, double upper,
+            int binCount, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        if (!(lower < upper)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + "]");
+        }
+        double[] edges = new double[2];
+        double[][] hist = HistoMath.of(histogramData, HistoMath.boundaries(lower, upper, binCount), edges);
+        BarPlot plot = Histogram.of(hist, edges, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of given bins using defaults for fonts and
+     * colors. The values below and above the bins are drawn as distinct bars
+     * at the edges rather than dropped.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param boundaries     an array of size {@code binCount + 1} giving the
+     *                       boundaries between the bins in ascending order
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createFixedRangeHistogram(double[] histogramData, double[] boundaries,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[] edges = new double[2];
+        double[][] hist = HistoMath.of(histogramData, boundaries, edges);
+        BarPlot plot = Histogram.of(hist, edges, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image from a stream of decimal numbers separated by
+     * whitespace, commas or semicolons using defaults for fonts and colors. The
+     * stream is read by the calling thread while one worker thread per
+     * available processor parses and bins the values. The stream is read to its
+     * end but not closed.
+     * 
+     * @param histogramData  the stream of data values
+     * @param boundaries     an array of size {@code binCount + 1} giving the
+     *                       boundaries between the bins in ascending order
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     * @throws IOException if reading the stream fails or it contains a token
+     *                     which is not a number
+     */
+    public static BufferedImage createHistogramFromStream(InputStream histogramData, double[] boundaries,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) throws IOException {
+
+        StreamIngester ingester = new StreamIngester(boundaries, Runtime.getRuntime().availableProcessors());
+        double[][] hist = ingester.ingest(histogramData);
+        BarPlot plot = Histogram.of(hist, ingester.count(), scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a categorical histogram image with one bar per category, labeled
+     * on the x axis and ordered by descending count, using defaults for fonts
+     * and colors. Categories beyond the {@code maxBars - 1} most frequent ones
+     * are summed up in a single "(other)" bar.
+     * 
+     * @param categories     the category counts
+     * @param maxBars        the maximum number of bars
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the category counts
+     */
+    public static BufferedImage createHistogramFromCategories(CategoryCounter categories, int maxBars,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(categories, maxBars, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of epoch timestamps with one bin per calendar
+     * unit using defaults for fonts and colors. Second, minute and hour bins
+     * start on a wall-clock boundary of the time zone, day bins run from local
+     * midnight to local midnight.
+     * 
+     * @param timestamps     the epoch timestamps
+     * @param precision      the unit of the timestamps, e.g. milliseconds or
+     *                       nanoseconds (seconds or finer)
+     * @param binUnit        the calendar unit of a bin, one of
+     *                       {@code SECONDS}, {@code MINUTES}, {@code HOURS} or
+     *                       {@code DAYS}
+     * @param zone           the time zone which defines the wall-clock
+     *                       boundaries
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromTimestamps(long[] timestamps, TimeUnit precision,
+            ChronoUnit binUnit, ZoneId zone, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(timestamps, new TimeBins(precision, binUnit, zone), scaleRelative,
+                ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates one histogram image per column of a data set given a count of bins
+     * using defaults for fonts and colors. All histograms are computed together
+     * in cache-sized blocks of rows.
+     * 
+     * @param columns        the double data sample of each column, all of the
+     *                       same length
+     * @param binCount       the number of bins to partition the data of each
+     *                       column
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the images
+     * @param imgHeight      the height of the images
+     * @param imgTitles      the title of each image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram of each column
+     */
+    public static BufferedImage[] createHistogramsFromColumns(double[][] columns, int binCount,
+            boolean scaleRelative, int imgWidth, int imgHeight, String[] imgTitles, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        return createImages(Histogram.ofColumns(columns, binCount, scaleRelative, ColorPalette.TURQUOISE), imgWidth,
+                imgHeight, imgTitles, xAxisLabelText, yAxisLabelText);
+    }
+
+    /**
+     * Creates one histogram image per column of a row-major data set given a
+     * count of bins using defaults for fonts and colors. All histograms are
+     * computed together in cache-sized blocks of rows.
+     * 
+     * @param rows           the double data sample in row-major order
+     * @param stride         the number of columns of a row
+     * @param binCount       the number of bins to partition the data of each
+     *                       column
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the images
+     * @param imgHeight      the height of the images
+     * @param imgTitles      the title of each image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram of each column
+     */
+    public static BufferedImage[] createHistogramsFromRows(double[] rows, int stride, int binCount,
+            boolean scaleRelative, int imgWidth, int imgHeight, String[] imgTitles, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        return createImages(Histogram.ofRows(rows, stride, binCount, scaleRelative, ColorPalette.TURQUOISE), imgWidth,
+                imgHeight, imgTitles, xAxisLabelText, yAxisLabelText);
+    }
+
+    /**
+     * Creates a histogram image of at most the given count of bins from the
+     * cached levels of a bin pyramid using defaults for fonts and colors. The
+     * cost depends on the number of bins only, not on the size of the data
+     * sample.
+     * 
+     * @param pyramid        the bin pyramid of the data sample
+     * @param binCount       the maximum number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromPyramid(BinPyramid pyramid, int binCount, boolean scaleRelative,
+            int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(pyramid.of(binCount), pyramid.getCount(), scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a cumulative histogram image in which each bar is the total count
+     * of all bins up to and including its own bin using defaults for fonts and
+     * colors.
+     * 
+     * @param bins           the indexed histogram
+     * @param scaleRelative  if {@code true} the y axis will be scaled as the
+     *                       empirical cumulative distribution from 0 to 1
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the cumulative histogram
+     */
+    public static BufferedImage createCumulativeHistogram(BinIndex bins, boolean scaleRelative, int imgWidth,
+            int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(bins.cumulative(), bins.getCount(), scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a prepared data sample using defaults for
+     * fonts and colors. The cost depends on the number of bins and only
+     * logarithmically on the size of the data sample.
+     * 
+     * @param sample         the prepared data sample
+     * @param binCount       the number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromSample(PreparedSample sample, int binCount, boolean scaleRelative,
+            int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(sample.of(binCount), sample.getCount(), scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of the range [lower, upper] of a prepared data
+     * sample using defaults for fonts and colors, e.g. to zoom into a part of
+     * the sample. Values outside of the range are not shown, but the relative
+     * scale is still the share of the whole sample.
+     * 
+     * @param sample         the prepared data sample
+     * @param lower          the lower end of the range
+     * @param upper          the upper end of the range
+     * @param binCount       the number of bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramFromSample(PreparedSample sample, double lower, double upper,
+            int binCount, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(sample.of(lower, upper, binCount), sample.getCount(), scaleRelative,
+                ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates an image of a statistic of a value column per bin of a key
+     * column, e.g. the mean or maximum latency per payload size, using defaults
+     * for fonts and colors.
+     * 
+     * @param statistics     the binned statistics
+     * @param statistic      the statistic to show as the height of the bars
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the binned statistic
+     */
+    public static BufferedImage createHistogramFromStatistics(BinnedStatistics statistics, Statistic statistic,
+            int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        BarPlot plot = Histogram.of(statistics, statistic, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a double property of objects using defaults
+     * for fonts and colors. The property is extracted in chunks without boxing
+     * or an intermediate array of all values.
+     * 
+     * @param <T>            the type of the objects
+     * @param items          the objects, iterated twice
+     * @param value          the double property of an object
+     * @param binCount       the number of bins
+     * @param parallel       if {@code true} a random access list is processed by
+     *                       the common fork-join pool
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static <T> BufferedImage createHistogramOfDoubles(Iterable<T> items, ToDoubleFunction<? super T> value,
+            int binCount, boolean parallel, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        double[][] hist = ObjectHistogram.of(items, value, binCount, parallel);
+        BarPlot plot = Histogram.of(hist, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a double property of objects using defaults
+     * for fonts and colors. The property is extracted in chunks without boxing
+     * or an intermediate array of all values.
+     * 
+     * @param <T>            the type of the objects
+     * @param items          the objects
+     * @param value          the double property of an object
+     * @param binCount       the number of bins
+     * @param parallel       if {@code true} the array is processed by
+     *                       the common fork-join pool
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static <T> BufferedImage createHistogramOfDoubles(T[] items, ToDoubleFunction<? super T> value,
+            int binCount, boolean parallel, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        double[][] hist = ObjectHistogram.of(Arrays.asList(items), value, binCount, parallel);
+        BarPlot plot = Histogram.of(hist, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a long property of objects using defaults
+     * for fonts and colors. The property is extracted in chunks without boxing
+     * or an intermediate array of all values. The bins have integer widths as
+     * for a long array.
+     * 
+     * @param <T>            the type of the objects
+     * @param items          the objects, iterated twice
+     * @param value          the long property of an object
+     * @param binCount       the number of bins
+     * @param parallel       if {@code true} a random access list is processed by
+     *                       the common fork-join pool
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static <T> BufferedImage createHistogramOfLongs(Iterable<T> items, ToLongFunction<? super T> value,
+            int binCount, boolean parallel, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        double[][] hist = ObjectHistogram.ofLongs(items, value, binCount, parallel);
+        BarPlot plot = Histogram.of(hist, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a long property of objects using defaults
+     * for fonts and colors. The property is extracted in chunks without boxing
+     * or an intermediate array of all values. The bins have integer widths as
+     * for a long array.
+     * 
+     * @param <T>            the type of the objects
+     * @param items          the objects
+     * @param value          the long property of an object
+     * @param binCount       the number of bins
+     * @param parallel       if {@code true} the array is processed by
+     *                       the common fork-join pool
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static <T> BufferedImage createHistogramOfLongs(T[] items, ToLongFunction<? super T> value,
+            int binCount, boolean parallel, boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        double[][] hist = ObjectHistogram.ofLongs(Arrays.asList(items), value, binCount, parallel);
+        BarPlot plot = Histogram.of(hist, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of bins which hold about the same number of
+     * values using defaults for fonts and colors. The bars have different
+     * widths and their heights are the densities of the bins. The bin
+     * boundaries and counts are derived from a streaming quantile summary of
+     * bounded memory in a single pass, the data is never sorted.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param binCount       the maximum number of bins, heavily tied data
+     *                       yields fewer bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled as a
+     *                       probability density
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createEqualFrequencyHistogram(double[] histogramData, int binCount,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[][] hist = HistoMath.ofEqualFrequency(histogramData, binCount);
+        BarPlot plot = Histogram.ofVariableWidth(hist, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a series of a registry using defaults for
+     * fonts and colors. Values below and above the bins are drawn as distinct
+     * bars at the edges.
+     * 
+     * @param registry       the registry
+     * @param series         the series handle
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the series
+     */
+    public static BufferedImage createHistogramFromRegistry(HistogramRegistry registry, int series,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[][] hist = registry.of(series);
+        double[] edges = { registry.getUnderflow(series), registry.getOverflow(series) };
+        double n = edges[0] + edges[1];
+        for (double count : hist[2]) {
+            n += count;
+        }
+        BarPlot plot = Histogram.of(hist, edges, n, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a snapshot of a shared-memory histogram
+     * using defaults for fonts and colors, e.g. in a reader process of a
+     * histogram recorded by other processes. Values below and above the bins
+     * are drawn as distinct bars at the edges.
+     * 
+     * @param histogram      the shared histogram
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram
+     */
+    public static BufferedImage createHistogramFromShared(SharedHistogram histogram, boolean scaleRelative,
+            int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText, String yAxisLabelText) {
+
+        double[][] hist = histogram.snapshot();
+        double[] edges = { histogram.getUnderflow(), histogram.getOverflow() };
+        double n = edges[0] + edges[1];
+        for (double count : hist[2]) {
+            n += count;
+        }
+        BarPlot plot = Histogram.of(hist, edges, n, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of the sum of the snapshots of a time range of
+     * a snapshot store using defaults for fonts and colors.
+     * 
+     * @param store          the snapshot store
+     * @param from           the start of the time range in epoch milliseconds
+     *                       (inclusive)
+     * @param to             the end of the time range in epoch milliseconds
+     *                       (exclusive)
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the time range
+     * @throws IOException if reading the store fails
+     */
+    public static BufferedImage createHistogramFromStore(SnapshotStore store, long from, long to,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) throws IOException {
+
+        BarPlot plot = Histogram.of(store.of(from, to), scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image using defaults for fonts and colors and keeps
+     * a few exemplars of each bin, e.g. to find the trace ids of the values of
+     * a tail bin. The data is binned by the boundaries of the exemplars, values
+     * outside of them are not counted. The exemplars kept are drawn as points
+     * on top of the bars.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param ids            the id of each data point, or {@code null} to use
+     *                       the row numbers as ids
+     * @param exemplars      receives the exemplars of each bin, whose
+     *                       boundaries are the bins of the histogram
+     * @param scaleRelative  if {@code true} the y axis will be scaled in
+     *                       proportion to the share of the bin data
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createHistogramWithExemplars(double[] histogramData, long[] ids, Exemplars exemplars,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[][] hist = HistoMath.bins(exemplars.boundaries());
+        HistoMath.count(histogramData, ids, exemplars, hist[2]);
+        BarPlot plot = Histogram.of(hist, histogramData.length, scaleRelative, ColorPalette.TURQUOISE)
+                .addExemplars(exemplars, '@', ColorPalette.DARK_RED);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a fine histogram compressed into a few
+     * variable-width bins using defaults for fonts and colors. Adjacent bins
+     * are merged so that the merged bins approximate the counts of the fine
+     * bins with the least squared error (see {@link BinMerging}). The height of
+     * a bar is the density of its bin.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param binCount       the number of bins of the fine histogram
+     * @param mergedBinCount the number of merged bins
+     * @param scaleRelative  if {@code true} the y axis will be scaled as a
+     *                       probability density
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createCompressedHistogram(double[] histogramData, int binCount, int mergedBinCount,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[][] hist = BinMerging.merge(HistoMath.of(histogramData, binCount), mergedBinCount);
+        BarPlot plot = Histogram.ofVariableWidth(hist, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    /**
+     * Creates a histogram image of a fine histogram compressed into a few
+     * variable-width bins using defaults for fonts and colors. Adjacent bins
+     * are merged so that the merged bins approximate the counts of the fine
+     * bins with the least squared error (see {@link BinMerging}). The height of
+     * a bar is the density of its bin.
+     * 
+     * @param histogramData  the data to be represented by the histogram
+     * @param binCount       the number of bins of the fine histogram
+     * @param maxError       the maximum sum of the squared differences between
+     *                       the counts of the fine bins and their
+     *                       approximations, the fewest merged bins within this
+     *                       error are drawn
+     * @param scaleRelative  if {@code true} the y axis will be scaled as a
+     *                       probability density
+     * @param imgWidth       the width of the image
+     * @param imgHeight      the height of the image
+     * @param imgTitle       the title of the image
+     * @param xAxisLabelText the text label of the x axis
+     * @param yAxisLabelText the text label of the y axis
+     * @return a BufferedImage representation of the histogram data
+     */
+    public static BufferedImage createErrorBoundedHistogram(double[] histogramData, int binCount, double maxError,
+            boolean scaleRelative, int imgWidth, int imgHeight, String imgTitle, String xAxisLabelText,
+            String yAxisLabelText) {
+
+        double[][] hist = BinMerging.merge(HistoMath.of(histogramData, binCount), maxError);
+        BarPlot plot = Histogram.ofVariableWidth(hist, histogramData.length, scaleRelative, ColorPalette.TURQUOISE);
+        return createImage(plot, imgWidth, imgHeight, imgTitle, xAxisLabelText, yAxisLabelText, null, null, null, null,
+                null, null);
+    }
+
+    private static BufferedImage[] createImages(BarPlot[] plots, int imgWidth, int imgHeight, String[] imgTitles,
+            String xAxisLabelText, String yAxisLabelText) {
+
+        if (imgTitles.length != plots.length) {
+            throw new IllegalArgumentException("Number of titles doesn't match the number of columns");
+        }
+        BufferedImage[] images = new BufferedImage[plots.length];
+        for (int c = 0; c < plots.length; c++) {
+            images[c] = createImage(plots[c], imgWidth, imgHeight, imgTitles[c], xAxisLabelText, yAxisLabelText,
+                    null, null, null, null, null, null);
+        }
+        return images;
+    }
+
     private static BufferedImage createImage(BarPlot plot, int imgWidth, int imgHeight, String imgTitle,
             String xAxisLabelText, String yAxisLabelText, Font titleFont, Color titleColor, Font xAxisLabelFont,
             Color xAxisLabelColor, Font yAxisLabelFont, Color yAxisLabelColor) {
@@ -129,6 +129,26 @@ final class MathExt {
         return max;
     }
 
+    /**
+     * Returns the minimum and the maximum value of an array in a single pass.
+     * 
+     * @param x the array
+     * @return an array of the minimum and the maximum value
+     */
+    static double[] range(double[] x) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double n : x) {
+            if (n < min) {
+                min = n;
+            }
+            if (n > max) {
+                max = n;
+            }
+        }
+        return new double[] { min, max };
+    }
+
     /**
      * Returns the column minimum of a matrix.
      * 
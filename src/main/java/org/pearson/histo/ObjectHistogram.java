@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Histograms of a primitive property of objects. The property is extracted
+ * with a primitive function in chunks of a small reusable buffer and binned
+ * chunk by chunk, so neither boxed values nor a full array of the values are
+ * created. The objects are iterated twice, once for the range of the values
+ * and once for the counts.
+ * <p>
+ * In parallel mode a {@link RandomAccess} list is split into sublists which are
+ * processed by the common fork-join pool. Other collections are always
+ * processed by the calling thread. Bins are laid out as by {@link HistoMath}
+ * for an array of the values; {@code NaN} values are not counted.
+ */
+final class ObjectHistogram {
+
+    /**
+     * The number of values extracted and binned together.
+     */
+    private static final int CHUNK = 1024;
+
+    /**
+     * The number of objects of a parallel task.
+     */
+    private static final int TASK_SIZE = 1 << 16;
+
+    /**
+     * Generate the histogram of k bins of a double property.
+     * 
+     * @param items    the objects, iterated twice
+     * @param value    the property of an object
+     * @param binCount the number of bins
+     * @param parallel if true, a random access list is processed in parallel
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static <T> double[][] of(Iterable<T> items, ToDoubleFunction<? super T> value, int binCount,
+            boolean parallel) {
+        HistoMath.checkBinCount(binCount);
+        double[] range = apply(items, parallel, part -> range(part, value),
+                (a, b) -> new double[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+        if (range == null || range[0] > range[1]) {
+            throw new IllegalArgumentException("Empty data sample");
+        }
+
+        double[] boundaries = HistoMath.boundaries(range[0], range[1], binCount);
+        EytzingerIndex index = new EytzingerIndex(boundaries);
+        double[][] freq = HistoMath.bins(boundaries);
+        freq[2] = apply(items, parallel, part -> count(part, value, index), ObjectHistogram::merge);
+        return freq;
+    }
+
+    /**
+     * Generate the histogram of at least k integer-width bins of a long
+     * property.
+     * 
+     * @param items    the objects, iterated twice
+     * @param value    the property of an object
+     * @param binCount the number of bins
+     * @param parallel if true, a random access list is processed in parallel
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    static <T> double[][] ofLongs(Iterable<T> items, ToLongFunction<? super T> value, int binCount,
+            boolean parallel) {
+        HistoMath.checkBinCount(binCount);
+        long[] range = apply(items, parallel, part -> rangeOfLongs(part, value),
+                (a, b) -> new long[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+        if (range == null || range[0] > range[1]) {
+            throw new IllegalArgumentException("Empty data sample");
+        }
+
+        long span = range[1] - range[0] + 1L;
+        double[] boundaries = new double[HistoMath.binCount(span, binCount) + 1];
+        HistoMath.boundaries(range[0], span, boundaries);
+        EytzingerIndex index = new EytzingerIndex(boundaries);
+        double[][] freq = HistoMath.bins(boundaries);
+        freq[2] = apply(items, parallel, part -> countLongs(part, value, index), ObjectHistogram::merge);
+        return freq;
+    }
+
+    /**
+     * Applies a task to all objects at once or, in parallel mode, to sublists
+     * of a random access list and merges the results. Returns null for an empty
+     * list.
+     */
+    private static <T, R> R apply(Iterable<T> items, boolean parallel, Function<Iterable<T>, R> task,
+            BinaryOperator<R> merge) {
+        if (!parallel || !(items instanceof List) || !(items instanceof RandomAccess)) {
+            return task.apply(items);
+        }
+        List<T> list = (List<T>) items;
+        int size = list.size();
+        int tasks = (size + TASK_SIZE - 1) / TASK_SIZE;
+        return IntStream.range(0, tasks).parallel()
+                .mapToObj(t -> task.apply(list.subList(t * TASK_SIZE, Math.min(size, (t + 1) * TASK_SIZE))))
+                .reduce(merge).orElse(null);
+    }
+
+    private static <T> double[] range(Iterable<T> items, ToDoubleFunction<? super T> value) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (T item : items) {
+            double x = value.applyAsDouble(item);
+            if (x < min) {
+                min = x;
+            }
+            if (x > max) {
+                max = x;
+            }
+        }
+        return new double[] { min, max };
+    }
+
+    private static <T> long[] rangeOfLongs(Iterable<T> items, ToLongFunction<? super T> value) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (T item : items) {
+            long x = value.applyAsLong(item);
+            if (x < min) {
+                min = x;
+            }
+            if (x > max) {
+                max = x;
+            }
+        }
+        return new long[] { min, max };
+    }
+
+    private static <T> double[] count(Iterable<T> items, ToDoubleFunction<? super T> value, EytzingerIndex index) {
+        double[] count = new double[index.binCount];
+        double[] buffer = new double[CHUNK];
+        int n = 0;
+        for (T item : items) {
+            buffer[n++] = value.applyAsDouble(item);
+            if (n == CHUNK) {
+                count(buffer, n, index, count);
+                n = 0;
+            }
+        }
+        count(buffer, n, index, count);
+        return count;
+    }
+
+    private static <T> double[] countLongs(Iterable<T> items, ToLongFunction<? super T> value, EytzingerIndex index) {
+        double[] count = new double[index.binCount];
+        double[] buffer = new double[CHUNK];
+        int n = 0;
+        for (T item : items) {
+            buffer[n++] = value.applyAsLong(item);
+            if (n == CHUNK) {
+                count(buffer, n, index, count);
+                n = 0;
+            }
+        }
+        count(buffer, n, index, count);
+        return count;
+    }
+
+    private static void count(double[] buffer, int n, EytzingerIndex index, double[] count) {
+        for (int i = 0; i < n; i++) {
+            int j = index.binOf(buffer[i]);
+
+            if (j >= 0) {
+                count[j]++;
+            }
+        }
+    }
+
+    private static double[] merge(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    private ObjectHistogram() {
+    }
+}
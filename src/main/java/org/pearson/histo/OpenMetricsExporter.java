@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes all series of a {@link HistogramRegistry} in the OpenMetrics
+ * (Prometheus) text format: per series one cumulative {@code _bucket} line per
+ * bin boundary and {@code +Inf}, a {@code _sum} and a {@code _count} line,
+ * preceded by a {@code # TYPE} line per name.
+ * <p>
+ * The {@code le} bucket of a boundary counts the values less than or equal to
+ * the boundary, the first bucket being the underflow, since the bins of a
+ * registry include their upper boundary. Infinite boundaries and sums are
+ * written as {@code +Inf} and {@code -Inf}; an infinite last boundary is the
+ * {@code +Inf} bucket.
+ * <p>
+ * The text is built in a buffer owned by the exporter and the formatted bucket
+ * bounds are cached, so repeated scrapes allocate little beyond the sorted
+ * key array. Instances are not thread-safe.
+ */
+public final class OpenMetricsExporter {
+
+    private final HistogramRegistry registry;
+
+    /**
+     * The {@code le} label value of each boundary.
+     */
+    private final String[] bounds;
+
+    /**
+     * Whether the last boundary is finite, i.e. has a bucket of its own
+     * besides {@code +Inf}.
+     */
+    private final boolean upperBounded;
+
+    private final StringBuilder text = new StringBuilder(1 << 12);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    /**
+     * Creates an exporter.
+     *
+     * @param registry the registry to export
+     */
+    public OpenMetricsExporter(HistogramRegistry registry) {
+        this.registry = registry;
+        double[] boundaries = registry.boundaries();
+        bounds = new String[boundaries.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            bounds[i] = format(boundaries[i]);
+        }
+        upperBounded = boundaries[boundaries.length - 1] != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Writes the current state of all series.
+     *
+     * @param out the destination
+     * @throws IOException if writing to the destination fails
+     */
+    public void write(Appendable out) throws IOException {
+        out.append(format());
+    }
+
+    /**
+     * Writes the current state of all series as UTF-8 into a buffer from its
+     * position on. If the remaining space doesn't suffice, the content is
+     * written into a new buffer of sufficient capacity instead, which should
+     * be passed to subsequent calls for reuse.
+     *
+     * @param buffer the destination buffer
+     * @return the buffer written to, positioned after the text
+     */
+    public ByteBuffer write(ByteBuffer buffer) {
+        CharSequence chars = format();
+        int start = buffer.position();
+        while (true) {
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(chars), buffer, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(buffer);
+            }
+            if (!result.isOverflow()) {
+                return buffer;
+            }
+            ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(2 * buffer.capacity() + chars.length())
+                    : ByteBuffer.allocate(2 * buffer.capacity() + chars.length());
+            buffer.flip();
+            buffer.position(0);
+            buffer.limit(start);
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    /**
+     * Formats all series into the text buffer.
+     */
+    private CharSequence format() {
+        StringBuilder sb = text;
+        sb.setLength(0);
+        int binCount = registry.getBinCount();
+        String family = null;
+        for (String key : registry.keys()) {
+            int series = registry.handle(key);
+            int nameLength = HistogramRegistry.nameLength(key);
+            if (family == null || !key.regionMatches(0, family, 0, nameLength) || family.length() != nameLength) {
+                family = key.substring(0, nameLength);
+                sb.append("# TYPE ").append(family).append(" histogram\n");
+            }
+
+            long cumulative = registry.getUnderflow(series);
+            bucket(sb, key, nameLength, bounds[0]).append(cumulative).append('\n');
+            for (int i = 0; i < binCount - 1; i++) {
+                cumulative += registry.getCount(series, i);
+                bucket(sb, key, nameLength, bounds[i + 1]).append(cumulative).append('\n');
+            }
+            cumulative += registry.getCount(series, binCount - 1);
+            if (upperBounded) {
+                bucket(sb, key, nameLength, bounds[binCount]).append(cumulative).append('\n');
+            }
+            cumulative += registry.getOverflow(series);
+            bucket(sb, key, nameLength, "+Inf").append(cumulative).append('\n');
+
+            double sum = registry.getSum(series);
+            if (Double.isInfinite(sum)) {
+                series(sb, key, nameLength, "_sum").append(format(sum)).append('\n');
+            } else {
+                series(sb, key, nameLength, "_sum").append(sum).append('\n');
+            }
+            series(sb, key, nameLength, "_count").append(cumulative).append('\n');
+        }
+        sb.append("# EOF\n");
+        return sb;
+    }
+
+    /**
+     * Formats a number as OpenMetrics does, i.e. infinities as {@code +Inf}
+     * and {@code -Inf}.
+     */
+    private static String format(double x) {
+        if (x == Double.POSITIVE_INFINITY) {
+            return "+Inf";
+        }
+        if (x == Double.NEGATIVE_INFINITY) {
+            return "-Inf";
+        }
+        return Double.toString(x);
+    }
+
+    /**
+     * Appends the name, the suffix and the labels of a series line.
+     */
+    private static StringBuilder series(StringBuilder sb, String key, int nameLength, String suffix) {
+        sb.append(key, 0, nameLength).append(suffix).append(key, nameLength, key.length());
+        return sb.append(' ');
+    }
+
+    /**
+     * Appends the name and the labels of a bucket line with the {@code le}
+     * label.
+     */
+    private static StringBuilder bucket(StringBuilder sb, String key, int nameLength, String le) {
+        sb.append(key, 0, nameLength).append("_bucket{");
+        if (nameLength < key.length()) {
+            sb.append(key, nameLength + 1, key.length() - 1).append(',');
+        }
+        return sb.append("le=\"").append(le).append("\"} ");
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * Bins data into very many bins, e.g. 10^5 to 10^7 bins of fine-grained ids
+ * or exact values, in two cache-friendly phases.
+ * <p>
+ * With that many bins a single {@link EytzingerIndex} and the counts are much
+ * larger than the caches, so each value costs a chain of cache and TLB misses.
+ * Instead, the bins are split into partitions of a few thousand consecutive
+ * bins. A block of values is first scattered by partition, located by a small
+ * index of the partition boundaries which stays in the L1 cache. Then the
+ * values of each partition are searched in an index of the boundaries of the
+ * partition and counted, both of which fit into the L2 cache. The time per
+ * value thereby grows only slowly with the number of bins.
+ */
+final class PartitionedBinning {
+
+    /**
+     * The number of bins from which partitioning is faster than a single
+     * index.
+     */
+    static final int MIN_BIN_COUNT = 1 << 16;
+
+    /**
+     * The maximum number of bins of a partition. The index of its 8191
+     * boundaries is padded to 2^13 entries of 12 bytes (96 KiB), which with the
+     * counts (64 KiB) leaves room for the values in a 256 KiB L2 cache.
+     */
+    private static final int PARTITION_BINS = (1 << 13) - 2;
+
+    /**
+     * The number of values of a block per partition, large enough that the
+     * index and counts of a partition are reused by many values.
+     */
+    private static final int PARTITION_VALUES = 1 << 14;
+
+    private static final int MIN_BLOCK_SIZE = 1 << 16;
+
+    private static final int MAX_BLOCK_SIZE = 1 << 22;
+
+    /**
+     * The first bin of each partition and the bin count as the last element.
+     */
+    private final int[] starts;
+
+    /**
+     * The index of the lower boundaries of the partitions.
+     */
+    private final EytzingerIndex partitions;
+
+    /**
+     * The index of the boundaries of each partition.
+     */
+    private final EytzingerIndex[] indexes;
+
+    /**
+     * The number of values scattered at a time.
+     */
+    private final int blockSize;
+
+    /**
+     * Constructor.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     */
+    PartitionedBinning(double[] boundaries) {
+        int binCount = HistoMath.checkBinCount(boundaries.length - 1);
+        // at least two partitions of at least two bins each, none larger than
+        // PARTITION_BINS
+        int partitionCount = Math.max(2, Math.min((binCount + PARTITION_BINS - 1) / PARTITION_BINS, binCount / 2));
+
+        starts = new int[partitionCount + 1];
+        double[] lower = new double[partitionCount + 1];
+        indexes = new EytzingerIndex[partitionCount];
+        for (int p = 0; p <= partitionCount; p++) {
+            starts[p] = (int) ((long) p * binCount / partitionCount);
+            lower[p] = boundaries[starts[p]];
+        }
+        for (int p = 0; p < partitionCount; p++) {
+            indexes[p] = new EytzingerIndex(Arrays.copyOfRange(boundaries, starts[p], starts[p + 1] + 1));
+        }
+        partitions = new EytzingerIndex(lower);
+        blockSize = Math.min(MAX_BLOCK_SIZE, Math.max(MIN_BLOCK_SIZE, partitionCount * PARTITION_VALUES));
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     * {@code NaN} isn't counted at all.
+     *
+     * @param data  the data points
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries, or null to drop them
+     */
+    void count(double[] data, double[] count, double[] edges) {
+        Block block = new Block(data.length);
+        for (int from = 0; from < data.length; from += blockSize) {
+            count(data, from, Math.min(data.length, from + blockSize), block, count, edges);
+        }
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     *
+     * @param data  the data points
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries, or null to drop them
+     */
+    void count(int[] data, double[] count, double[] edges) {
+        Block block = new Block(data.length);
+        double[] values = new double[block.scattered.length];
+        for (int from = 0; from < data.length; from += blockSize) {
+            int to = Math.min(data.length, from + blockSize);
+            for (int i = from; i < to; i++) {
+                values[i - from] = data[i];
+            }
+            count(values, 0, to - from, block, count, edges);
+        }
+    }
+
+    /**
+     * Adds the bin counts of the data points to a frequency count.
+     *
+     * @param data  the data points
+     * @param count the frequency count of each bin
+     * @param edges receives the number of values below (underflow) and above
+     *              (overflow) the boundaries, or null to drop them
+     */
+    void count(long[] data, double[] count, double[] edges) {
+        Block block = new Block(data.length);
+        double[] values = new double[block.scattered.length];
+        for (int from = 0; from < data.length; from += blockSize) {
+            int to = Math.min(data.length, from + blockSize);
+            for (int i = from; i < to; i++) {
+                values[i - from] = data[i];
+            }
+            count(values, 0, to - from, block, count, edges);
+        }
+    }
+
+    /**
+     * Counts a block of values.
+     */
+    private void count(double[] values, int from, int to, Block block, double[] count, double[] edges) {
+        int[] partition = block.partition;
+        int[] offsets = block.offsets;
+        double[] scattered = block.scattered;
+
+        // phase 1: locate the partition of each value and scatter the values
+        Arrays.fill(offsets, 0);
+        for (int i = from; i < to; i++) {
+            double x = values[i];
+            int p = partitions.binOf(x);
+            partition[i - from] = p;
+            if (p >= 0) {
+                offsets[p + 1]++;
+            } else if (edges != null && x == x) {
+                edges[partitions.isBelow(x) ? 0 : 1]++;
+            }
+        }
+        for (int p = 1; p < offsets.length; p++) {
+            offsets[p] += offsets[p - 1];
+        }
+        int[] next = block.next;
+        System.arraycopy(offsets, 0, next, 0, next.length);
+        for (int i = from; i < to; i++) {
+            int p = partition[i - from];
+            if (p >= 0) {
+                scattered[next[p]++] = values[i];
+            }
+        }
+
+        // phase 2: count each partition within its own index and counts
+        for (int p = 0; p < indexes.length; p++) {
+            EytzingerIndex index = indexes[p];
+            int start = starts[p];
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                count[start + index.binOf(scattered[i])]++;
+            }
+        }
+    }
+
+    /**
+     * The buffers of a block of values.
+     */
+    private final class Block {
+        final double[] scattered;
+        final int[] partition;
+        final int[] offsets = new int[indexes.length + 1];
+        final int[] next = new int[indexes.length];
+
+        /**
+         * Constructor of the buffers for a data sample, no larger than the
+         * sample.
+         */
+        Block(int size) {
+            size = Math.min(size, blockSize);
+            scattered = new double[size];
+            partition = new int[size];
+        }
+    }
+}
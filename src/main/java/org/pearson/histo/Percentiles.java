@@ -0,0 +1,398 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * Exact percentiles of a data sample. All requested percentiles are computed
+ * together by a single multi-select (a recursive introselect over the sorted
+ * requested ranks) on a scratch copy of the data, so the input array is left
+ * untouched and never fully sorted. The expected cost is {@code O(n log q)}
+ * for {@code q} requested percentiles, i.e. linear in the sample size.
+ * <p>
+ * Percentiles are linearly interpolated between the two closest ranks (the
+ * definition used by most spreadsheet and statistics packages). {@code NaN}
+ * values of a double sample are ignored.
+ * <p>
+ * The scratch buffer is retained and reused by subsequent calls. Instances are
+ * therefore not thread-safe and should be confined to a single thread.
+ */
+public final class Percentiles {
+
+    /**
+     * The maximum sample size of the instance of a thread, about 4 MB of
+     * scratch buffer.
+     */
+    static final int MAX_RETAINED_SIZE = 1 << 19;
+
+    private static final ThreadLocal<Percentiles> PERCENTILES = ThreadLocal.withInitial(Percentiles::new);
+
+    private static final int M = 7;
+
+    /**
+     * Scratch buffer for int and double samples.
+     */
+    private double[] buffer = new double[0];
+
+    /**
+     * Scratch buffer for long samples.
+     */
+    private long[] longBuffer = new long[0];
+
+    /**
+     * Creates an instance with an initially empty scratch buffer.
+     */
+    public Percentiles() {
+    }
+
+    /**
+     * Returns the instance of the current thread, or a new instance for a
+     * sample of more than {@link #MAX_RETAINED_SIZE} values.
+     *
+     * @param size the size of the data sample
+     */
+    static Percentiles get(int size) {
+        return size <= MAX_RETAINED_SIZE ? PERCENTILES.get() : new Percentiles();
+    }
+
+    /**
+     * Computes the exact percentiles of a data sample.
+     *
+     * @param data        the int data sample
+     * @param percentiles the requested percentiles, each in the range [0, 100]
+     * @return the value of each requested percentile in the order of the request
+     */
+    public double[] of(int[] data, double... percentiles) {
+        double[] x = buffer(data.length);
+        for (int i = 0; i < data.length; i++) {
+            x[i] = data[i];
+        }
+        return select(x, data.length, percentiles);
+    }
+
+    /**
+     * Computes the exact percentiles of a data sample.
+     *
+     * @param data        the long data sample
+     * @param percentiles the requested percentiles, each in the range [0, 100]
+     * @return the value of each requested percentile in the order of the request
+     */
+    public double[] of(long[] data, double... percentiles) {
+        int n = data.length;
+        if (longBuffer.length < n) {
+            longBuffer = new long[n];
+        }
+        long[] x = longBuffer;
+        System.arraycopy(data, 0, x, 0, n);
+
+        double[] h = heights(n, percentiles);
+        int[] ranks = ranks(h, n);
+        select(x, 0, n - 1, ranks, 0, ranks.length - 1, depthLimit(n));
+
+        double[] values = new double[h.length];
+        for (int i = 0; i < h.length; i++) {
+            int lo = (int) h[i];
+            int hi = Math.min(lo + 1, n - 1);
+            values[i] = x[lo] + (h[i] - lo) * (double) (x[hi] - x[lo]);
+        }
+        return values;
+    }
+
+    /**
+     * Computes the exact percentiles of a data sample.
+     *
+     * @param data        the double data sample
+     * @param percentiles the requested percentiles, each in the range [0, 100]
+     * @return the value of each requested percentile in the order of the request
+     */
+    public double[] of(double[] data, double... percentiles) {
+        double[] x = buffer(data.length);
+        int n = 0;
+        for (double d : data) {
+            if (d == d) {
+                x[n++] = d;
+            }
+        }
+        return select(x, n, percentiles);
+    }
+
+    private double[] buffer(int n) {
+        if (buffer.length < n) {
+            buffer = new double[n];
+        }
+        return buffer;
+    }
+
+    private static double[] select(double[] x, int n, double[] percentiles) {
+        double[] h = heights(n, percentiles);
+        int[] ranks = ranks(h, n);
+        select(x, 0, n - 1, ranks, 0, ranks.length - 1, depthLimit(n));
+
+        double[] values = new double[h.length];
+        for (int i = 0; i < h.length; i++) {
+            int lo = (int) h[i];
+            int hi = Math.min(lo + 1, n - 1);
+            values[i] = x[lo] + (h[i] - lo) * (x[hi] - x[lo]);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the (fractional) zero-based rank of each percentile.
+     */
+    private static double[] heights(int n, double[] percentiles) {
+        if (n == 0) {
+            throw new IllegalArgumentException("Empty data sample");
+        }
+        double[] h = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double p = percentiles[i];
+            if (!(p >= 0.0 && p <= 100.0)) {
+                throw new IllegalArgumentException("Invalid percentile: " + p);
+            }
+            h[i] = (n - 1) * p / 100.0;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the sorted distinct ranks which have to be selected to
+     * interpolate all percentiles.
+     */
+    private static int[] ranks(double[] h, int n) {
+        int[] ranks = new int[2 * h.length];
+        for (int i = 0; i < h.length; i++) {
+            int lo = (int) h[i];
+            ranks[2 * i] = lo;
+            ranks[2 * i + 1] = Math.min(lo + 1, n - 1);
+        }
+        Arrays.sort(ranks);
+        int count = 0;
+        for (int i = 0; i < ranks.length; i++) {
+            if (count == 0 || ranks[count - 1] != ranks[i]) {
+                ranks[count++] = ranks[i];
+            }
+        }
+        return Arrays.copyOf(ranks, count);
+    }
+
+    private static int depthLimit(int n) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * Rearranges x[l..ir] such that every x[k] for k in ranks[rl..rr] holds the
+     * value it would have if x[l..ir] was sorted. Falls back to heapsort if the
+     * partitioning degenerates.
+     */
+    private static void select(double[] x, int l, int ir, int[] ranks, int rl, int rr, int depth) {
+        while (rl <= rr) {
+            if (ir - l < M) {
+                insertionSort(x, l, ir);
+                return;
+            }
+            if (depth-- == 0) {
+                heapSort(x, l, ir);
+                return;
+            }
+
+            int j = partition(x, l, ir);
+
+            // split the requested ranks at the final pivot position
+            int rm = rl;
+            while (rm <= rr && ranks[rm] < j) {
+                rm++;
+            }
+            select(x, l, j - 1, ranks, rl, rm - 1, depth);
+            if (rm <= rr && ranks[rm] == j) {
+                rm++;
+            }
+            l = j + 1;
+            rl = rm;
+        }
+    }
+
+    private static void select(long[] x, int l, int ir, int[] ranks, int rl, int rr, int depth) {
+        while (rl <= rr) {
+            if (ir - l < M) {
+                insertionSort(x, l, ir);
+                return;
+            }
+            if (depth-- == 0) {
+                heapSort(x, l, ir);
+                return;
+            }
+
+            int j = partition(x, l, ir);
+
+            int rm = rl;
+            while (rm <= rr && ranks[rm] < j) {
+                rm++;
+            }
+            select(x, l, j - 1, ranks, rl, rm - 1, depth);
+            if (rm <= rr && ranks[rm] == j) {
+                rm++;
+            }
+            l = j + 1;
+            rl = rm;
+        }
+    }
+
+    /**
+     * Median-of-three partitioning as in {@link QuickSort}. Returns the final
+     * position of the pivot.
+     */
+    private static int partition(double[] x, int l, int ir) {
+        int k = (l + ir) >> 1;
+        Swap.swap(x, k, l + 1);
+        if (x[l] > x[ir]) {
+            Swap.swap(x, l, ir);
+        }
+        if (x[l + 1] > x[ir]) {
+            Swap.swap(x, l + 1, ir);
+        }
+        if (x[l] > x[l + 1]) {
+            Swap.swap(x, l, l + 1);
+        }
+        int i = l + 1;
+        int j = ir;
+        double a = x[l + 1];
+        for (;;) {
+            do {
+                i++;
+            } while (x[i] < a);
+            do {
+                j--;
+            } while (x[j] > a);
+            if (j < i) {
+                break;
+            }
+            Swap.swap(x, i, j);
+        }
+        x[l + 1] = x[j];
+        x[j] = a;
+        return j;
+    }
+
+    private static int partition(long[] x, int l, int ir) {
+        int k = (l + ir) >> 1;
+        Swap.swap(x, k, l + 1);
+        if (x[l] > x[ir]) {
+            Swap.swap(x, l, ir);
+        }
+        if (x[l + 1] > x[ir]) {
+            Swap.swap(x, l + 1, ir);
+        }
+        if (x[l] > x[l + 1]) {
+            Swap.swap(x, l, l + 1);
+        }
+        int i = l + 1;
+        int j = ir;
+        long a = x[l + 1];
+        for (;;) {
+            do {
+                i++;
+            } while (x[i] < a);
+            do {
+                j--;
+            } while (x[j] > a);
+            if (j < i) {
+                break;
+            }
+            Swap.swap(x, i, j);
+        }
+        x[l + 1] = x[j];
+        x[j] = a;
+        return j;
+    }
+
+    private static void insertionSort(double[] x, int l, int ir) {
+        for (int j = l + 1; j <= ir; j++) {
+            double a = x[j];
+            int i;
+            for (i = j - 1; i >= l; i--) {
+                if (x[i] <= a) {
+                    break;
+                }
+                x[i + 1] = x[i];
+            }
+            x[i + 1] = a;
+        }
+    }
+
+    private static void insertionSort(long[] x, int l, int ir) {
+        for (int j = l + 1; j <= ir; j++) {
+            long a = x[j];
+            int i;
+            for (i = j - 1; i >= l; i--) {
+                if (x[i] <= a) {
+                    break;
+                }
+                x[i + 1] = x[i];
+            }
+            x[i + 1] = a;
+        }
+    }
+
+    private static void heapSort(double[] x, int l, int ir) {
+        int n = ir - l + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(x, l, i, n);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            Swap.swap(x, l, l + i);
+            siftDown(x, l, 0, i);
+        }
+    }
+
+    private static void heapSort(long[] x, int l, int ir) {
+        int n = ir - l + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(x, l, i, n);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            Swap.swap(x, l, l + i);
+            siftDown(x, l, 0, i);
+        }
+    }
+
+    private static void siftDown(double[] x, int l, int k, int n) {
+        while (2 * k + 1 < n) {
+            int j = 2 * k + 1;
+            if (j + 1 < n && x[l + j] < x[l + j + 1]) {
+                j++;
+            }
+            if (x[l + k] >= x[l + j]) {
+                break;
+            }
+            Swap.swap(x, l + k, l + j);
+            k = j;
+        }
+    }
+
+    private static void siftDown(long[] x, int l, int k, int n) {
+        while (2 * k + 1 < n) {
+            int j = 2 * k + 1;
+            if (j + 1 < n && x[l + j] < x[l + j + 1]) {
+                j++;
+            }
+            if (x[l + k] >= x[l + j]) {
+                break;
+            }
+            Swap.swap(x, l + k, l + j);
+            k = j;
+        }
+    }
+}
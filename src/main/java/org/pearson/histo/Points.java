@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.awt.Color;
+
+/**
+ * Single points drawn with a mark and not connected by lines.
+ */
+final class Points extends Shape {
+
+    /**
+     * The coordinates of the points.
+     */
+    final double[][] points;
+
+    /**
+     * The mark of the points, see {@link Graphics#drawPoint(char, double...)}.
+     */
+    private final char mark;
+
+    /**
+     * Constructor.
+     */
+    Points(double[][] points, char mark, Color color) {
+        super(color);
+        this.points = points;
+        this.mark = mark;
+    }
+
+    @Override
+    void paint(Graphics g) {
+        g.setColor(color);
+        for (double[] point : points) {
+            g.drawPoint(mark, point);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * A data sample prepared for repeated interactive re-binning and zooming. A
+ * sorted copy of the sample is built once (with a parallel sort); afterwards
+ * the count of each bin of any bin layout is the distance between the binary
+ * search positions of its boundaries, so a histogram costs
+ * {@code O(binCount log n)} instead of {@code O(n)}.
+ * <p>
+ * The counts equal those of the corresponding histograms of the unsorted
+ * sample: a value {@code x} belongs to bin {@code i} if
+ * {@code boundaries[i] <= x < boundaries[i + 1]}, the last bin also includes
+ * its upper boundary. Instances are immutable and thread-safe.
+ */
+public final class PreparedSample {
+
+    private final double[] sorted;
+
+    /**
+     * The number of values which are not {@code NaN}.
+     */
+    private final int size;
+
+    /**
+     * Prepares a data sample.
+     *
+     * @param data the double data sample
+     */
+    public PreparedSample(double[] data) {
+        this.sorted = sort(data.clone());
+        this.size = size(sorted);
+    }
+
+    /**
+     * Prepares a data sample.
+     *
+     * @param data the int data sample
+     */
+    public PreparedSample(int[] data) {
+        this.sorted = sort(Arrays.stream(data).asDoubleStream().toArray());
+        this.size = size(sorted);
+    }
+
+    /**
+     * Prepares a data sample.
+     *
+     * @param data the long data sample
+     */
+    public PreparedSample(long[] data) {
+        this.sorted = sort(Arrays.stream(data).asDoubleStream().toArray());
+        this.size = size(sorted);
+    }
+
+    /**
+     * Sorts a private copy of the sample in place.
+     */
+    private static double[] sort(double[] copy) {
+        if (copy.length == 0) {
+            throw new IllegalArgumentException("Empty data sample");
+        }
+        Arrays.parallelSort(copy);
+        return copy;
+    }
+
+    /**
+     * Returns the number of sorted values which are not {@code NaN} (NaN sorts
+     * last).
+     */
+    private static int size(double[] sorted) {
+        int n = sorted.length;
+        while (n > 0 && Double.isNaN(sorted[n - 1])) {
+            n--;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of values of the sample (excluding {@code NaN}).
+     */
+    public int getCount() {
+        return size;
+    }
+
+    /**
+     * Returns the minimum of the sample.
+     */
+    public double getMin() {
+        return sorted[0];
+    }
+
+    /**
+     * Returns the maximum of the sample.
+     */
+    public double getMax() {
+        return size == 0 ? Double.NaN : sorted[size - 1];
+    }
+
+    /**
+     * Returns the number of values in the range [lower, upper].
+     *
+     * @param lower the lower end of the range
+     * @param upper the upper end of the range
+     * @return the number of values
+     */
+    public int countBetween(double lower, double upper) {
+        return Math.max(0, upperBound(upper, 0) - lowerBound(lower, 0));
+    }
+
+    /**
+     * Generate the histogram of k equal-width bins over the whole sample as
+     * {@link HistoMath#of(double[], int)} does.
+     */
+    double[][] of(int binCount) {
+        return of(HistoMath.boundaries(getMin(), getMax(), HistoMath.checkBinCount(binCount)));
+    }
+
+    /**
+     * Generate the histogram of k equal-width bins over the range [lower,
+     * upper].
+     */
+    double[][] of(double lower, double upper, int binCount) {
+        if (!(lower < upper)) {
+            throw new IllegalArgumentException("Invalid range: [" + lower + ", " + upper + "]");
+        }
+        return of(HistoMath.boundaries(lower, upper, HistoMath.checkBinCount(binCount)));
+    }
+
+    /**
+     * Generate the histogram of arbitrary bins.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     */
+    double[][] of(double[] boundaries) {
+        double[][] freq = HistoMath.bins(boundaries);
+        int binCount = freq[2].length;
+
+        // each search starts where the search of the previous boundary ended
+        int from = lowerBound(boundaries[0], 0);
+        for (int i = 0; i < binCount - 1; i++) {
+            int to = lowerBound(boundaries[i + 1], from);
+            freq[2][i] = to - from;
+            from = to;
+        }
+        freq[2][binCount - 1] = Math.max(0, upperBound(boundaries[binCount], from) - from);
+        return freq;
+    }
+
+    /**
+     * Returns the index of the first value >= x at or after from.
+     */
+    private int lowerBound(double x, int from) {
+        int lo = from;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(sorted[mid], x) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the first value > x at or after from.
+     */
+    private int upperBound(double x, int from) {
+        int lo = from;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(sorted[mid], x) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.util.Arrays;
+
+/**
+ * A streaming summary of approximate quantiles of bounded memory (the merging
+ * buffers of Munro and Paterson). Values are collected in a buffer of size
+ * {@code k}; a full buffer is sorted and carried into a binary counter of
+ * levels, where two sorted buffers of the same level are merged and halved by
+ * keeping every other value, each surviving value standing for twice as many
+ * values as before. Only buffers of size {@code k} are ever sorted.
+ * <p>
+ * The memory is {@code O(k log(n / k))} for {@code n} values and the rank error
+ * of a quantile is about {@code n log2(n / k) / k}. The minimum and the
+ * maximum are exact. {@code NaN} values are ignored. Instances are not
+ * thread-safe.
+ */
+final class QuantileSketch {
+
+    private static final int DEFAULT_K = 1024;
+
+    private final int k;
+
+    /**
+     * The values which are not yet carried into the levels.
+     */
+    private double[] buffer;
+
+    private int size;
+
+    /**
+     * The full sorted buffers of each level or null, the values of level l
+     * having the weight {@code 2^l}.
+     */
+    private double[][] levels = new double[0][];
+
+    /**
+     * Alternates the values kept by the halving to avoid a bias.
+     */
+    private boolean odd;
+
+    private long count;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a summary of the default buffer size.
+     */
+    QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Creates a summary.
+     *
+     * @param k the buffer size, i.e. the accuracy
+     */
+    QuantileSketch(int k) {
+        if (k < 2 || (k & 1) != 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + k);
+        }
+        this.k = k;
+        this.buffer = new double[k];
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param x the value
+     */
+    void add(double x) {
+        if (x != x) {
+            return;
+        }
+        count++;
+        if (x < min) {
+            min = x;
+        }
+        if (x > max) {
+            max = x;
+        }
+        buffer[size++] = x;
+        if (size == k) {
+            Arrays.sort(buffer);
+            carry(buffer);
+            buffer = new double[k];
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the number of values added.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Carries a full sorted buffer into the levels.
+     */
+    private void carry(double[] sorted) {
+        for (int l = 0;; l++) {
+            if (l == levels.length) {
+                levels = Arrays.copyOf(levels, l + 1);
+            }
+            if (levels[l] == null) {
+                levels[l] = sorted;
+                return;
+            }
+            sorted = halve(levels[l], sorted);
+            levels[l] = null;
+        }
+    }
+
+    /**
+     * Merges two sorted buffers and keeps every other value.
+     */
+    private double[] halve(double[] a, double[] b) {
+        double[] half = new double[k];
+        int i = 0;
+        int j = 0;
+        int keep = odd ? 1 : 0;
+        odd = !odd;
+        for (int m = 0; m < 2 * k; m++) {
+            double x = j == k || (i < k && a[i] <= b[j]) ? a[i++] : b[j++];
+            if ((m & 1) == keep) {
+                half[m >> 1] = x;
+            }
+        }
+        return half;
+    }
+
+    /**
+     * Returns approximate quantiles.
+     *
+     * @param p the probabilities in ascending order, each in the range [0, 1]
+     * @return the quantile of each probability
+     */
+    double[] quantiles(double[] p) {
+        if (count == 0L) {
+            throw new IllegalStateException("Empty data sample");
+        }
+        double[] sorted = Arrays.copyOf(buffer, size);
+        Arrays.sort(sorted);
+
+        // merge the levels in ascending order of the values; pos[l] is the
+        // next value of level l - 1, pos[0] the next value of the buffer
+        int m = levels.length + 1;
+        int[] pos = new int[m];
+        double[] quantiles = new double[p.length];
+        double rank = 0.0;
+        int q = 0;
+        while (q < p.length) {
+            if (p[q] <= 0.0) {
+                quantiles[q++] = min;
+                continue;
+            }
+            if (p[q] >= 1.0) {
+                quantiles[q++] = max;
+                continue;
+            }
+
+            int next = -1;
+            double x = Double.POSITIVE_INFINITY;
+            for (int l = 0; l < m; l++) {
+                double[] level = l == 0 ? sorted : levels[l - 1];
+                if (level != null && pos[l] < level.length && (next < 0 || level[pos[l]] < x)) {
+                    next = l;
+                    x = level[pos[l]];
+                }
+            }
+            if (next < 0) {
+                quantiles[q++] = max;
+                continue;
+            }
+            pos[next]++;
+            rank += next == 0 ? 1.0 : (double) (1L << (next - 1));
+
+            while (q < p.length && p[q] < 1.0 && rank >= p[q] * count) {
+                quantiles[q++] = x;
+            }
+        }
+        return quantiles;
+    }
+
+    /**
+     * Returns approximate ranks, i.e. the number of values added which are
+     * less than each of the given values. The weights of the summarized
+     * values add up to the count, so the difference of the ranks of the
+     * minimum and of a value above the maximum is exact.
+     *
+     * @param x the values in ascending order
+     * @return the rank of each value
+     */
+    double[] ranks(double[] x) {
+        double[] sorted = Arrays.copyOf(buffer, size);
+        Arrays.sort(sorted);
+        double[] ranks = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            ranks[i] = below(sorted, x[i]);
+            for (int l = 0; l < levels.length; l++) {
+                if (levels[l] != null) {
+                    ranks[i] += (double) below(levels[l], x[i]) * (1L << l);
+                }
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the number of values of a sorted array less than x.
+     */
+    private static int below(double[] sorted, double x) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the boundaries of at most k bins of about equal frequency. Equal
+     * quantiles of ties are collapsed into one boundary, so heavily tied data
+     * yields fewer bins.
+     *
+     * @param binCount the number of bins
+     * @return an array of ascending boundaries
+     */
+    double[] boundaries(int binCount) {
+        double[] p = new double[binCount + 1];
+        for (int i = 0; i <= binCount; i++) {
+            p[i] = (double) i / binCount;
+        }
+        double[] q = quantiles(p);
+
+        int n = 1;
+        for (int i = 1; i <= binCount; i++) {
+            if (q[i] > q[n - 1]) {
+                q[n++] = q[i];
+            }
+        }
+        if (n < 3) {
+            // (almost) a single value
+            return HistoMath.boundaries(min, max, binCount);
+        }
+        return Arrays.copyOf(q, n);
+    }
+}
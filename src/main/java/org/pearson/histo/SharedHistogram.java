@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A histogram whose counters live in a memory-mapped file, so that several
+ * processes on a host can record into and read from the same histogram
+ * without any inter-process communication. A recorded value is visible to the
+ * other processes as soon as the atomic add on the shared memory completes.
+ * <p>
+ * On Java 9 and later the counters are updated lock-free by atomic adds
+ * through a {@code VarHandle} (see {@link SlabCounters}). On Java 8 the
+ * updates are only atomic among the threads of a process, concurrent
+ * recording from several processes may then lose counts.
+ * <p>
+ * The file consists of a header (a magic number, the number of bins and the
+ * bin boundaries) followed by the counters of the bins, the underflow and the
+ * overflow, all in the native byte order. {@code NaN} isn't counted.
+ */
+public final class SharedHistogram implements Closeable {
+
+    private static final long MAGIC = 0x50454152534f4e48L;
+
+    /**
+     * The byte offset of the boundaries, after the magic number and the number
+     * of bins.
+     */
+    private static final int BOUNDARIES = 16;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    /**
+     * The byte offset of the first counter.
+     */
+    private final int counters;
+
+    private SharedHistogram(FileChannel channel, MappedByteBuffer buffer, double[] boundaries) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.boundaries = boundaries;
+        this.index = new EytzingerIndex(boundaries);
+        this.counters = BOUNDARIES + boundaries.length * Long.BYTES;
+    }
+
+    /**
+     * Opens a shared histogram, creating the file if it doesn't exist yet.
+     *
+     * @param file       the file of the histogram
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins in ascending order, which
+     *                   must equal those of an existing file
+     * @return the histogram
+     * @throws IOException if the file can't be created or mapped, or an
+     *                     existing file isn't a histogram of these boundaries
+     */
+    public static SharedHistogram create(Path file, double[] boundaries) throws IOException {
+        int binCount = HistoMath.checkBinCount(boundaries.length - 1);
+        int size = BOUNDARIES + (2 * binCount + 3) * Long.BYTES;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0L) {
+                    MappedByteBuffer buffer = map(channel, size);
+                    for (int i = 0; i < boundaries.length; i++) {
+                        buffer.putDouble(BOUNDARIES + i * Long.BYTES, boundaries[i]);
+                    }
+                    buffer.putInt(8, binCount);
+                    buffer.putLong(0, MAGIC);
+                    buffer.force();
+                    return new SharedHistogram(channel, buffer, boundaries.clone());
+                }
+                SharedHistogram histogram = open(channel);
+                if (!Arrays.equals(histogram.boundaries, boundaries)) {
+                    throw new IOException("Histogram of different boundaries: " + file);
+                }
+                return histogram;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing shared histogram, e.g. to read it from another
+     * process.
+     *
+     * @param file the file of the histogram
+     * @return the histogram
+     * @throws IOException if the file can't be mapped or isn't a histogram
+     */
+    public static SharedHistogram open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.lock();
+            try {
+                return open(channel);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static SharedHistogram open(FileChannel channel) throws IOException {
+        if (channel.size() < BOUNDARIES) {
+            throw new IOException("Not a histogram file");
+        }
+        MappedByteBuffer header = map(channel, BOUNDARIES);
+        int binCount = header.getInt(8);
+        if (header.getLong(0) != MAGIC || binCount < 2
+                || channel.size() != BOUNDARIES + (2L * binCount + 3L) * Long.BYTES) {
+            throw new IOException("Not a histogram file");
+        }
+        MappedByteBuffer buffer = map(channel, (int) channel.size());
+        double[] boundaries = new double[binCount + 1];
+        for (int i = 0; i <= binCount; i++) {
+            boundaries[i] = buffer.getDouble(BOUNDARIES + i * Long.BYTES);
+        }
+        return new SharedHistogram(channel, buffer, boundaries);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param x the value
+     */
+    public void record(double x) {
+        int j = index.binOf(x);
+        if (j < 0) {
+            if (x != x) {
+                return;
+            }
+            j = index.isBelow(x) ? index.binCount : index.binCount + 1;
+        }
+        SlabCounters.add(buffer, counters + j * Long.BYTES, 1L);
+    }
+
+    /**
+     * Returns the number of bins.
+     */
+    public int getBinCount() {
+        return index.binCount;
+    }
+
+    /**
+     * Returns the current count of a bin.
+     *
+     * @param bin the bin index
+     * @return the count of the bin
+     */
+    public long getCount(int bin) {
+        if (bin < 0 || bin >= index.binCount) {
+            throw new IllegalArgumentException("Invalid bin: " + bin);
+        }
+        return SlabCounters.get(buffer, counters + bin * Long.BYTES);
+    }
+
+    /**
+     * Returns the current number of values below the first boundary.
+     */
+    public long getUnderflow() {
+        return SlabCounters.get(buffer, counters + index.binCount * Long.BYTES);
+    }
+
+    /**
+     * Returns the current number of values above the last boundary.
+     */
+    public long getOverflow() {
+        return SlabCounters.get(buffer, counters + (index.binCount + 1) * Long.BYTES);
+    }
+
+    /**
+     * Returns a snapshot of the counts as a 3-by-k bins array as returned by
+     * {@link HistoMath}.
+     */
+    double[][] snapshot() {
+        double[][] freq = HistoMath.bins(boundaries);
+        for (int i = 0; i < index.binCount; i++) {
+            freq[2][i] = getCount(i);
+        }
+        return freq;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released when the histogram is
+     * garbage collected; the histogram must not be used after it was closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
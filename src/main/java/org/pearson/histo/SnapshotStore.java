@@ -0,0 +1,509 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * An append-only on-disk store of histogram snapshots of the same bins, one
+ * per minute, with rollups per hour and per day.
+ * <p>
+ * Each resolution (level) keeps its snapshots in segment files of at most
+ * 16 MiB, each snapshot encoded as the varint gaps and counts of its non-empty
+ * bins, and a memory-mapped index of the time and file offset of each
+ * snapshot. When the first snapshot of a new hour (day) is appended, the
+ * snapshots of the previous hour (day) are summed up and appended to the next
+ * level. A range query sums the day snapshots of the whole days of the range,
+ * the hour snapshots of the remaining whole hours and the minute snapshots of
+ * the rest, so a 30 day range reads about a hundred snapshots instead of
+ * 43200. Old minute and hour segments can be deleted by
+ * {@link #compact(ChronoUnit, long)} once they have been rolled up.
+ * <p>
+ * Times are epoch milliseconds, hours and days are aligned in UTC. Instances
+ * are not thread-safe; a store must only be opened by one process at a time.
+ */
+public final class SnapshotStore implements Closeable {
+
+    private static final int SEGMENT_BYTES = 1 << 24;
+
+    private static final long[] PERIODS = { 60_000L, 3_600_000L, 86_400_000L };
+
+    private static final String[] NAMES = { "minutes", "hours", "days" };
+
+    /**
+     * The byte size of the index header: the number of entries and the first
+     * segment which hasn't been deleted.
+     */
+    private static final int HEADER = 16;
+
+    private static final int ENTRY = 16;
+
+    private final Path directory;
+
+    private final double[] boundaries;
+
+    private final int binCount;
+
+    private final Level[] levels = new Level[PERIODS.length];
+
+    /**
+     * The reusable buffer of an encoded snapshot including its length prefix.
+     */
+    private final ByteBuffer record;
+
+    /**
+     * Opens a store, creating it if the directory doesn't contain one yet.
+     *
+     * @param directory  the directory of the store
+     * @param boundaries an array of size {@code binCount + 1} giving the
+     *                   boundaries between the bins in ascending order, which
+     *                   must equal those of an existing store
+     * @return the store
+     * @throws IOException if the store can't be created or opened, or an
+     *                     existing store has different boundaries
+     */
+    public static SnapshotStore open(Path directory, double[] boundaries) throws IOException {
+        HistoMath.checkBinCount(boundaries.length - 1);
+        Files.createDirectories(directory);
+        Path meta = directory.resolve("boundaries");
+        if (Files.exists(meta)) {
+            ByteBuffer stored = ByteBuffer.wrap(Files.readAllBytes(meta));
+            double[] existing = new double[stored.remaining() / Double.BYTES];
+            stored.asDoubleBuffer().get(existing);
+            if (!Arrays.equals(existing, boundaries)) {
+                throw new IOException("Store of different boundaries: " + directory);
+            }
+        } else {
+            ByteBuffer bytes = ByteBuffer.allocate(boundaries.length * Double.BYTES);
+            bytes.asDoubleBuffer().put(boundaries);
+            Files.write(meta, bytes.array());
+        }
+        SnapshotStore store = new SnapshotStore(directory, boundaries.clone());
+        try {
+            store.recover();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private SnapshotStore(Path directory, double[] boundaries) throws IOException {
+        this.directory = directory;
+        this.boundaries = boundaries;
+        this.binCount = boundaries.length - 1;
+        // length, count of bins and a gap and a count per bin as varints
+        this.record = ByteBuffer.allocate(Integer.BYTES + 5 + binCount * (5 + 10));
+        for (int l = 0; l < levels.length; l++) {
+            levels[l] = new Level(l);
+        }
+    }
+
+    /**
+     * Appends the snapshot of a minute. The minutes must be appended in
+     * ascending order.
+     *
+     * @param time   a time within the minute
+     * @param counts the count of each bin
+     * @throws IOException if writing fails
+     */
+    public void append(long time, long[] counts) throws IOException {
+        if (counts.length != binCount) {
+            throw new IllegalArgumentException("Number of counts doesn't match the number of bins");
+        }
+        long minute = Math.floorDiv(time, PERIODS[0]) * PERIODS[0];
+        Level level = levels[0];
+        if (level.count > 0L && minute <= level.time(level.count - 1)) {
+            throw new IllegalArgumentException("Minute already appended or out of order: " + time);
+        }
+        append(0, minute, counts);
+    }
+
+    private void append(int l, long time, long[] counts) throws IOException {
+        Level level = levels[l];
+        if (l + 1 < levels.length) {
+            long bucket = Math.floorDiv(time, PERIODS[l + 1]);
+            if (level.pending != null && bucket != level.pendingBucket) {
+                append(l + 1, level.pendingBucket * PERIODS[l + 1], level.pending);
+                level.pending = null;
+            }
+            if (level.pending == null) {
+                level.pending = new long[binCount];
+                level.pendingBucket = bucket;
+            }
+            for (int i = 0; i < binCount; i++) {
+                level.pending[i] += counts[i];
+            }
+        }
+        level.append(time, encode(counts));
+    }
+
+    /**
+     * Returns the sum of the snapshots of the minutes in a time range. Parts of
+     * the range whose minute (hour) snapshots have been deleted by a compaction
+     * are answered at the resolution still available, i.e. by the snapshots of
+     * the whole hours (days) within the range.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to   the end of the range (exclusive)
+     * @return the count of each bin
+     * @throws IOException if reading fails
+     */
+    public long[] getCounts(long from, long to) throws IOException {
+        long[] sum = new long[binCount];
+        if (from < to) {
+            range(levels.length - 1, from, to, sum);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the snapshots of a time range as a 3-by-k bins array
+     * as returned by {@link HistoMath}.
+     */
+    double[][] of(long from, long to) throws IOException {
+        long[] counts = getCounts(from, to);
+        double[][] freq = HistoMath.bins(boundaries);
+        for (int i = 0; i < binCount; i++) {
+            freq[2][i] = counts[i];
+        }
+        return freq;
+    }
+
+    /**
+     * Adds the snapshots of [from, to) using the coarsest level for the whole
+     * periods of the level which have been rolled up and finer levels for the
+     * rest.
+     */
+    private void range(int l, long from, long to, long[] sum) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        if (l == 0) {
+            levels[0].sum(from, to, sum);
+            return;
+        }
+        long period = PERIODS[l];
+        long a = Math.floorDiv(from + period - 1, period) * period;
+        long b = Math.min(Math.floorDiv(to, period) * period, levels[l].end());
+        if (a >= b) {
+            range(l - 1, from, to, sum);
+            return;
+        }
+        range(l - 1, from, a, sum);
+        levels[l].sum(a, b, sum);
+        range(l - 1, b, to, sum);
+    }
+
+    /**
+     * Deletes the segments of minute or hour snapshots which end before a time
+     * and which have been rolled up to the next level. The segment currently
+     * written to is never deleted.
+     *
+     * @param unit   {@code MINUTES} or {@code HOURS}
+     * @param before the time before which snapshots may be deleted
+     * @throws IOException if deleting fails
+     */
+    public void compact(ChronoUnit unit, long before) throws IOException {
+        int l = unit == ChronoUnit.MINUTES ? 0 : unit == ChronoUnit.HOURS ? 1 : -1;
+        if (l < 0) {
+            throw new IllegalArgumentException("Unsupported resolution: " + unit);
+        }
+        levels[l].compact(Math.min(before, levels[l + 1].end()));
+    }
+
+    /**
+     * Reopens the levels after a restart: the pending rollup of each level is
+     * rebuilt from the snapshots since the last rolled up period.
+     */
+    private void recover() throws IOException {
+        for (int l = 0; l + 1 < levels.length; l++) {
+            Level level = levels[l];
+            if (level.count == 0L) {
+                continue;
+            }
+            long last = level.time(level.count - 1);
+            long bucket = Math.floorDiv(last, PERIODS[l + 1]);
+            if (levels[l + 1].end() <= bucket * PERIODS[l + 1]) {
+                level.pending = new long[binCount];
+                level.pendingBucket = bucket;
+                level.sum(bucket * PERIODS[l + 1], last + 1, level.pending);
+            }
+        }
+    }
+
+    /**
+     * Forces all data to the storage device and closes the files.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Level level : levels) {
+            if (level != null) {
+                level.close();
+            }
+        }
+    }
+
+    /**
+     * Encodes a snapshot into the record buffer, ready to be written.
+     */
+    private ByteBuffer encode(long[] counts) {
+        ByteBuffer r = record;
+        r.clear();
+        r.position(Integer.BYTES);
+        int nonEmpty = 0;
+        for (long c : counts) {
+            if (c != 0L) {
+                nonEmpty++;
+            }
+        }
+        putVarint(r, nonEmpty);
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0L) {
+                putVarint(r, i - previous - 1);
+                putVarint(r, counts[i]);
+                previous = i;
+            }
+        }
+        r.putInt(0, r.position() - Integer.BYTES);
+        r.flip();
+        return r;
+    }
+
+    /**
+     * Adds an encoded snapshot to the counts.
+     */
+    private static void decode(ByteBuffer r, long[] sum) {
+        int nonEmpty = (int) getVarint(r);
+        int i = -1;
+        for (int k = 0; k < nonEmpty; k++) {
+            i += (int) getVarint(r) + 1;
+            sum[i] += getVarint(r);
+        }
+    }
+
+    private static void putVarint(ByteBuffer r, long v) {
+        while ((v & ~0x7FL) != 0L) {
+            r.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        r.put((byte) v);
+    }
+
+    private static long getVarint(ByteBuffer r) {
+        long v = 0L;
+        for (int shift = 0;; shift += 7) {
+            byte b = r.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+    }
+
+    /**
+     * The snapshots of one resolution: segment files and a mapped index of
+     * {@code (time, offset)} entries, the offset being
+     * {@code segment * SEGMENT_BYTES + position}.
+     */
+    private final class Level {
+
+        private final int level;
+
+        private final FileChannel indexChannel;
+
+        private MappedByteBuffer index;
+
+        private long count;
+
+        private int firstSegment;
+
+        private FileChannel segment;
+
+        private int segmentNumber;
+
+        /**
+         * The sum of the snapshots of the period of the next level which is
+         * not yet rolled up, or null.
+         */
+        long[] pending;
+
+        long pendingBucket;
+
+        Level(int level) throws IOException {
+            this.level = level;
+            indexChannel = FileChannel.open(directory.resolve(NAMES[level] + ".idx"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(Math.max(indexChannel.size(), HEADER + 1024L * ENTRY));
+            count = index.getLong(0);
+            firstSegment = (int) index.getLong(8);
+            segmentNumber = count == 0L ? firstSegment : (int) (offset(count - 1) / SEGMENT_BYTES);
+            segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void map(long size) throws IOException {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+        }
+
+        private Path segmentPath(int number) {
+            return directory.resolve(String.format("%s-%06d.seg", NAMES[level], number));
+        }
+
+        long time(long entry) {
+            return index.getLong((int) (HEADER + entry * ENTRY));
+        }
+
+        private long offset(long entry) {
+            return index.getLong((int) (HEADER + entry * ENTRY + 8));
+        }
+
+        /**
+         * Returns the end of the period of the last snapshot.
+         */
+        long end() {
+            return count == 0L ? Long.MIN_VALUE : time(count - 1) + PERIODS[level];
+        }
+
+        void append(long time, ByteBuffer encoded) throws IOException {
+            long position = segment.size();
+            if (position + encoded.remaining() > SEGMENT_BYTES) {
+                segment.close();
+                segmentNumber++;
+                segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                position = segment.size();
+            }
+            long offset = (long) segmentNumber * SEGMENT_BYTES + position;
+            for (long p = position; encoded.hasRemaining();) {
+                p += segment.write(encoded, p);
+            }
+
+            long at = HEADER + count * ENTRY;
+            if (at + ENTRY > index.capacity()) {
+                map(2L * index.capacity());
+            }
+            index.putLong((int) at, time);
+            index.putLong((int) at + 8, offset);
+            // publish the entry after it has been written
+            index.putLong(0, ++count);
+        }
+
+        /**
+         * Adds the snapshots whose time is in [from, to).
+         */
+        void sum(long from, long to, long[] sum) throws IOException {
+            long minOffset = (long) firstSegment * SEGMENT_BYTES;
+            ByteBuffer r = record;
+            FileChannel channel = null;
+            int open = -1;
+            try {
+                for (long e = search(from); e < count && time(e) < to; e++) {
+                    long offset = offset(e);
+                    if (offset < minOffset) {
+                        continue;
+                    }
+                    int number = (int) (offset / SEGMENT_BYTES);
+                    if (number != open) {
+                        if (channel != null && channel != segment) {
+                            channel.close();
+                        }
+                        channel = number == segmentNumber ? segment
+                                : FileChannel.open(segmentPath(number), StandardOpenOption.READ);
+                        open = number;
+                    }
+                    long position = offset % SEGMENT_BYTES;
+                    read(channel, position, Integer.BYTES);
+                    read(channel, position + Integer.BYTES, r.getInt(0));
+                    decode(r, sum);
+                }
+            } finally {
+                if (channel != null && channel != segment) {
+                    channel.close();
+                }
+            }
+        }
+
+        /**
+         * Reads bytes of a segment into the record buffer.
+         */
+        private void read(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer r = record;
+            r.clear();
+            r.limit(length);
+            while (r.hasRemaining()) {
+                if (channel.read(r, position + r.position()) < 0) {
+                    throw new IOException("Truncated segment of " + NAMES[level]);
+                }
+            }
+            r.flip();
+        }
+
+        /**
+         * Returns the first entry whose time is at least t.
+         */
+        private long search(long t) {
+            long lo = 0L;
+            long hi = count;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (time(mid) < t) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void compact(long before) throws IOException {
+            while (firstSegment < segmentNumber) {
+                // the last entry of the first segment
+                long next = (long) (firstSegment + 1) * SEGMENT_BYTES;
+                long lo = 0L;
+                long hi = count;
+                while (lo < hi) {
+                    long mid = (lo + hi) >>> 1;
+                    if (offset(mid) < next) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                if (lo > 0L && time(lo - 1) + PERIODS[level] > before) {
+                    return;
+                }
+                Files.deleteIfExists(segmentPath(firstSegment));
+                index.putLong(8, ++firstSegment);
+            }
+        }
+
+        void close() throws IOException {
+            index.force();
+            segment.force(true);
+            segment.close();
+            indexChannel.close();
+        }
+    }
+}
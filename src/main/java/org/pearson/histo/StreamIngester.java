@@ -0,0 +1,326 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pipelined ingestion of a text data sample from an {@link InputStream}. The
+ * values are decimal numbers separated by whitespace, commas or semicolons.
+ * <p>
+ * The calling thread reads the stream into a bounded pool of recycled direct
+ * buffers, cutting each buffer after its last separator. Worker threads parse
+ * the full buffers and bin the values into their own partial counts which are
+ * merged once the stream is exhausted. A reader that is faster than the workers
+ * blocks on the empty pool, so memory is bounded by the pool size and the
+ * partial counts, which are {@link CompactCounters} so that many workers of
+ * many bins don't take a {@code long} per bin each.
+ */
+final class StreamIngester {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Marks the end of the stream in the queue of full buffers.
+     */
+    private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+            1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private final double[] boundaries;
+
+    private final EytzingerIndex index;
+
+    private final int workers;
+
+    /**
+     * The number of values parsed by the last ingestion.
+     */
+    private long count;
+
+    /**
+     * Constructor.
+     *
+     * @param boundaries an array of size {@code binCount + 1} giving the boundaries
+     *                   between histogram cells. Must be in ascending order
+     * @param workers    the number of parser/binner threads
+     */
+    StreamIngester(double[] boundaries, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        this.boundaries = boundaries;
+        this.index = new EytzingerIndex(boundaries);
+        this.workers = workers;
+    }
+
+    /**
+     * Reads the stream until its end and bins all values. The stream is not
+     * closed.
+     *
+     * @param in the stream of values
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins, and the third row is the
+     *         frequency count
+     * @throws IOException if reading the stream fails or it contains a token
+     *                     which is not a number
+     */
+    double[][] ingest(InputStream in) throws IOException {
+        BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2 * workers + 2);
+        BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(2 * workers + 2 + workers);
+        while (free.remainingCapacity() > 0) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+
+        Worker[] pool = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            pool[i] = new Worker(free, full);
+            pool[i].start();
+        }
+
+        IOException failure = null;
+        try {
+            read(Channels.newChannel(in), free, full);
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException(e);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                full.add(EOF);
+            }
+        }
+
+        double[][] freq = new double[3][index.binCount];
+        System.arraycopy(boundaries, 0, freq[0], 0, index.binCount);
+        System.arraycopy(boundaries, 1, freq[1], 0, index.binCount);
+        long n = 0L;
+        for (Worker worker : pool) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (failure == null && worker.failure != null) {
+                failure = new IOException(worker.failure);
+            }
+            worker.counts.addTo(freq[2]);
+            n += worker.count;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        count = n;
+        return freq;
+    }
+
+    /**
+     * Returns the number of values parsed by the last ingestion including those
+     * which are outside of the boundaries.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * The reader stage.
+     */
+    private static void read(ReadableByteChannel ch, BlockingQueue<ByteBuffer> free, BlockingQueue<ByteBuffer> full)
+            throws IOException, InterruptedException {
+        ByteBuffer buf = free.take();
+        buf.clear();
+        boolean eof = false;
+        while (!eof) {
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+
+            int end = buf.position();
+            int cut = end;
+            if (!eof) {
+                // hand over complete tokens only, the tail goes to the next buffer
+                while (cut > 0 && !isSeparator(buf.get(cut - 1))) {
+                    cut--;
+                }
+                if (cut == 0) {
+                    throw new IOException("Token exceeds " + BUFFER_SIZE + " bytes");
+                }
+            }
+
+            ByteBuffer next = eof ? null : free.take();
+            if (next != null) {
+                next.clear();
+                for (int i = cut; i < end; i++) {
+                    next.put(buf.get(i));
+                }
+            }
+            buf.position(0);
+            buf.limit(cut);
+            full.put(buf);
+            buf = next;
+        }
+    }
+
+    /**
+     * The parser/binner stage.
+     */
+    private final class Worker extends Thread {
+
+        final CompactCounters counts = new CompactCounters(index.binCount);
+
+        long count;
+
+        Throwable failure;
+
+        private final BlockingQueue<ByteBuffer> free;
+
+        private final BlockingQueue<ByteBuffer> full;
+
+        Worker(BlockingQueue<ByteBuffer> free, BlockingQueue<ByteBuffer> full) {
+            super("pearson-ingest");
+            setDaemon(true);
+            this.free = free;
+            this.full = full;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    ByteBuffer buf = full.take();
+                    if (buf == EOF) {
+                        return;
+                    }
+                    if (failure == null) {
+                        try {
+                            bin(buf);
+                        } catch (RuntimeException e) {
+                            // keep recycling buffers so that the reader can't stall
+                            failure = e;
+                        }
+                    }
+                    free.put(buf);
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+        }
+
+        private void bin(ByteBuffer buf) {
+            int limit = buf.limit();
+            int i = 0;
+            while (i < limit) {
+                while (i < limit && isSeparator(buf.get(i))) {
+                    i++;
+                }
+                int start = i;
+                while (i < limit && !isSeparator(buf.get(i))) {
+                    i++;
+                }
+                if (i > start) {
+                    int j = index.binOf(parse(buf, start, i));
+                    if (j >= 0) {
+                        counts.increment(j);
+                    }
+                    count++;
+                }
+            }
+        }
+    }
+
+    private static boolean isSeparator(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ';';
+    }
+
+    /**
+     * Parses a decimal number. Numbers with at most 15 significant digits and a
+     * decimal exponent of at most 22 are converted exactly by a single floating
+     * point operation, all others are passed to {@link Double#parseDouble}.
+     */
+    static double parse(ByteBuffer buf, int start, int end) {
+        int i = start;
+        byte c = buf.get(i);
+        boolean negative = c == '-';
+        if (negative || c == '+') {
+            i++;
+        }
+
+        long mantissa = 0L;
+        int digits = 0;
+        int scale = 0;
+        boolean seen = false;
+        for (; i < end && (c = buf.get(i)) >= '0' && c <= '9'; i++) {
+            mantissa = 10L * mantissa + (c - '0');
+            if (mantissa != 0L) {
+                digits++;
+            }
+            seen = true;
+        }
+        if (i < end && buf.get(i) == '.') {
+            for (i++; i < end && (c = buf.get(i)) >= '0' && c <= '9'; i++) {
+                mantissa = 10L * mantissa + (c - '0');
+                if (mantissa != 0L) {
+                    digits++;
+                }
+                scale--;
+                seen = true;
+            }
+        }
+        if (seen && i < end && ((c = buf.get(i)) == 'e' || c == 'E')) {
+            i++;
+            boolean negativeExp = i < end && buf.get(i) == '-';
+            if (i < end && (negativeExp || buf.get(i) == '+')) {
+                i++;
+            }
+            int exp = 0;
+            int expStart = i;
+            for (; i < end && (c = buf.get(i)) >= '0' && c <= '9' && exp < 1000; i++) {
+                exp = 10 * exp + (c - '0');
+            }
+            if (i == expStart) {
+                seen = false;
+            }
+            scale += negativeExp ? -exp : exp;
+        }
+
+        if (!seen || i != end || digits > 15 || scale < -22 || scale > 22) {
+            byte[] token = new byte[end - start];
+            for (int k = 0; k < token.length; k++) {
+                token[k] = buf.get(start + k);
+            }
+            String text = new String(token, StandardCharsets.US_ASCII);
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + text, e);
+            }
+        }
+
+        double value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+        return negative ? -value : value;
+    }
+}
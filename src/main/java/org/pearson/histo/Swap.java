@@ -29,6 +29,20 @@ final class Swap {
         x[j] = a;
     }
 
+    /**
+     * Swap two positions.
+     * 
+     * @param x the array
+     * @param i the index of array element
+     * @param j the index of other element
+     */
+    static void swap(long[] x, int i, int j) {
+        long a;
+        a = x[i];
+        x[i] = x[j];
+        x[j] = a;
+    }
+
     /**
      * Swap two positions.
      * 
@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calendar-aligned binning of epoch timestamps. Second, minute and hour bins
+ * have a fixed length and start on a wall-clock boundary of the time zone. Day
+ * bins run from local midnight to local midnight and are therefore 23 or 25
+ * hours long on daylight saving transitions.
+ * <p>
+ * The zone offsets within the range of the data are resolved once into a table
+ * of transition instants, so binning a timestamp costs a lookup in that table
+ * and an integer division without any {@code java.time} allocation.
+ */
+final class TimeBins {
+
+    private static final int MAX_BINS = 1 << 20;
+
+    private final long unitsPerSecond;
+
+    private final ChronoUnit unit;
+
+    private final ZoneId zone;
+
+    /**
+     * The epoch timestamp (in units of the precision) of the start of each bin
+     * and the end of the last bin.
+     */
+    private long[] starts;
+
+    /**
+     * Constructor.
+     *
+     * @param precision the unit of the timestamps, seconds or finer
+     * @param unit      the calendar unit of a bin, one of {@code SECONDS},
+     *                  {@code MINUTES}, {@code HOURS} or {@code DAYS}
+     * @param zone      the time zone which defines the wall-clock boundaries
+     */
+    TimeBins(TimeUnit precision, ChronoUnit unit, ZoneId zone) {
+        unitsPerSecond = precision.convert(1L, TimeUnit.SECONDS);
+        if (unitsPerSecond == 0L) {
+            throw new IllegalArgumentException("Unsupported timestamp precision: " + precision);
+        }
+        switch (unit) {
+        case SECONDS:
+        case MINUTES:
+        case HOURS:
+        case DAYS:
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported calendar unit: " + unit);
+        }
+        this.unit = unit;
+        this.zone = zone;
+    }
+
+    /**
+     * Generate the histogram of the timestamps.
+     *
+     * @param data the epoch timestamps
+     * @return a 3-by-k bins array of which first row is the lower bound of bins,
+     *         second row is the upper bound of bins (both epoch timestamps), and
+     *         the third row is the frequency count
+     */
+    double[][] of(long[] data) {
+        long min = MathExt.min(data);
+        long max = MathExt.max(data);
+        long[] counts = unit == ChronoUnit.DAYS ? days(data, min, max) : fixed(data, min, max);
+
+        int binCount = counts.length;
+        double[][] freq = new double[3][binCount];
+        for (int i = 0; i < binCount; i++) {
+            freq[0][i] = starts[i];
+            freq[1][i] = starts[i + 1];
+            freq[2][i] = counts[i];
+        }
+        return freq;
+    }
+
+    /**
+     * Bins of a fixed length starting at the wall-clock boundary before the
+     * minimum.
+     */
+    private long[] fixed(long[] data, long min, long max) {
+        ZonedDateTime first = atZone(min).truncatedTo(unit);
+        long origin = first.toEpochSecond() * unitsPerSecond;
+        long length = unit.getDuration().getSeconds() * unitsPerSecond;
+        int binCount = binCount(Math.floorDiv(max - origin, length) + 1L);
+
+        long[] counts = new long[binCount];
+        for (long t : data) {
+            counts[(int) ((t - origin) / length)]++;
+        }
+
+        starts = new long[binCount + 1];
+        for (int i = 0; i <= binCount; i++) {
+            starts[i] = origin + i * length;
+        }
+        return counts;
+    }
+
+    /**
+     * Bins from local midnight to local midnight.
+     */
+    private long[] days(long[] data, long min, long max) {
+        ZoneRules rules = zone.getRules();
+        long[] transitions = new long[0];
+        long[] offsets = { rules.getOffset(atZone(min).toInstant()).getTotalSeconds() * unitsPerSecond };
+        ZoneOffsetTransition next = rules.nextTransition(atZone(min).toInstant());
+        while (next != null && next.getInstant().getEpochSecond() * unitsPerSecond <= max) {
+            int k = transitions.length;
+            transitions = Arrays.copyOf(transitions, k + 1);
+            offsets = Arrays.copyOf(offsets, k + 2);
+            transitions[k] = next.getInstant().getEpochSecond() * unitsPerSecond;
+            offsets[k + 1] = next.getOffsetAfter().getTotalSeconds() * unitsPerSecond;
+            next = rules.nextTransition(next.getInstant());
+        }
+
+        long day = 86400L * unitsPerSecond;
+        long firstDay = Math.floorDiv(min + offsets[0], day);
+        long lastDay = Math.floorDiv(max + offsets[offsets.length - 1], day);
+        int binCount = binCount(lastDay - firstDay + 1L);
+
+        long[] counts = new long[binCount];
+        for (long t : data) {
+            // the number of transitions up to t selects the offset
+            int s = transitions.length == 0 ? 0 : segment(transitions, t);
+            counts[(int) (Math.floorDiv(t + offsets[s], day) - firstDay)]++;
+        }
+
+        starts = new long[binCount + 1];
+        for (int i = 0; i <= binCount; i++) {
+            starts[i] = LocalDate.ofEpochDay(firstDay + i).atStartOfDay(zone).toEpochSecond() * unitsPerSecond;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of transitions at or before t.
+     */
+    private static int segment(long[] transitions, long t) {
+        int lo = 0;
+        int hi = transitions.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (transitions[mid] <= t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int binCount(long binCount) {
+        if (binCount > MAX_BINS) {
+            throw new IllegalArgumentException("Too many bins: " + binCount);
+        }
+        return (int) binCount;
+    }
+
+    private ZonedDateTime atZone(long t) {
+        long seconds = Math.floorDiv(t, unitsPerSecond);
+        return Instant.ofEpochSecond(seconds).atZone(zone);
+    }
+
+    /**
+     * Returns the wall-clock start of each bin of the last generated histogram
+     * as text.
+     */
+    String[] labels() {
+        DateTimeFormatter format;
+        switch (unit) {
+        case SECONDS:
+            format = DateTimeFormatter.ofPattern("HH:mm:ss");
+            break;
+        case MINUTES:
+            format = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+            break;
+        case HOURS:
+            format = DateTimeFormatter.ofPattern("MM-dd HH:00");
+            break;
+        default:
+            format = DateTimeFormatter.ISO_LOCAL_DATE;
+            break;
+        }
+
+        String[] labels = new String[starts.length - 1];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = atZone(starts[i]).format(format);
+        }
+        return labels;
+    }
+}
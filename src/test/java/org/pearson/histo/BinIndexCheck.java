@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pearson.histo;
+
+/**
+ * Checks of {@link BinIndex}, run with
+ * {@code java -cp target/classes:target/test-classes org.pearson.histo.BinIndexCheck}.
+ * The build has no test framework, so the checks throw {@link AssertionError}.
+ */
+public final class BinIndexCheck {
+
+    public static void main(String[] args) {
+        cdfOfNaN();
+        countBetweenNaN();
+        cdfOfNegativeZero();
+        countBetweenNegativeZero();
+        cdf();
+        System.out.println("BinIndexCheck passed");
+    }
+
+    private static BinIndex index() {
+        return new BinIndex(new double[] { 1.0, 2.0, 2.0, 3.0, 4.5, 5.5, 7.0, 8.0, 9.0, 9.5 },
+                HistoMath.boundaries(0.0, 10.0, 10));
+    }
+
+    private static void cdfOfNaN() {
+        assertNaN(index().cdf(Double.NaN));
+    }
+
+    private static void countBetweenNaN() {
+        BinIndex index = index();
+        assertNaN(index.countBetween(Double.NaN, 5.0));
+        assertNaN(index.countBetween(0.0, Double.NaN));
+    }
+
+    private static void cdfOfNegativeZero() {
+        assertEquals(0.0, index().cdf(-0.0));
+    }
+
+    private static void countBetweenNegativeZero() {
+        BinIndex index = index();
+        assertEquals(index.countBetween(0.0, 5.0), index.countBetween(-0.0, 5.0));
+    }
+
+    private static void cdf() {
+        BinIndex index = index();
+        assertEquals(0.0, index.cdf(-1.0));
+        assertEquals(0.5, index.cdf(5.0));
+        assertEquals(1.0, index.cdf(10.0));
+    }
+
+    private static void assertNaN(double actual) {
+        if (!Double.isNaN(actual)) {
+            throw new AssertionError("Expected NaN but was " + actual);
+        }
+    }
+
+    private static void assertEquals(double expected, double actual) {
+        if (Double.compare(expected, actual) != 0) {
+            throw new AssertionError("Expected " + expected + " but was " + actual);
+        }
+    }
+}